@@ -0,0 +1,39 @@
+#!/usr/bin/env bash
+# Replay a recorded analysis offline and report its wall time and GitHub API call count.
+#
+# Record the cassette once with a real run, for example:
+#   java -jar target/LT4C-*.jar --github-url https://github.com/owner/repo \
+#     --from-release v1.0.0 --target-release v2.0.0 --record bench.cassette
+# then replay it against any build with the same arguments. Add --replay-latency to the
+# arguments to reproduce the recorded network timing instead of measuring CPU time only.
+#
+# Usage: scripts/replay-benchmark.sh <cassette> [runs] -- <lt4c arguments>
+
+set -euo pipefail
+
+CASSETTE="$1"
+shift
+RUNS=5
+if [[ "${1:-}" != "--" ]]; then
+    RUNS="$1"
+    shift
+fi
+shift
+TARGET="$(cd "$(dirname "$0")/.." && pwd)/target"
+JAR="$(ls "$TARGET"/LT4C-*.jar | head -n 1)"
+
+total=0
+best=0
+calls=""
+for ((i = 0; i < RUNS; i++)); do
+    start=$(date +%s%N)
+    output="$(java -jar "$JAR" --replay "$CASSETTE" "$@" 2> /dev/null)"
+    end=$(date +%s%N)
+    elapsed=$(((end - start) / 1000000))
+    total=$((total + elapsed))
+    if ((best == 0 || elapsed < best)); then
+        best=$elapsed
+    fi
+    calls="$(grep -o '[0-9,]* GitHub API calls' <<< "$output" | tail -n 1)"
+done
+printf "replay       avg %5d ms   best %5d ms   %s   (%d runs)\n" $((total / RUNS)) "$best" "$calls" "$RUNS"
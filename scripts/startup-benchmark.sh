@@ -0,0 +1,102 @@
+#!/usr/bin/env bash
+# Compare time-to-first-request of the LT4C startup variants.
+#
+# Each run points LT4C at a local listener that timestamps every connection it accepts. The time
+# from launching the process to the first accepted connection is the startup cost; the process is
+# killed as soon as it connects, so github-api's connection retries and the connector's backoff
+# are never part of the measurement. Requires python3 for the listener.
+#
+# Usage: scripts/startup-benchmark.sh [runs]
+#   Build the variants first with: mvn -Pappcds package && mvn -Pnative package
+
+set -euo pipefail
+
+RUNS="${1:-10}"
+TARGET="$(cd "$(dirname "$0")/.." && pwd)/target"
+JAR="$(ls "$TARGET"/LT4C-*.jar | head -n 1)"
+JSA="${JAR%.jar}.jsa"
+NATIVE="$TARGET/lt4c"
+WORK="$(mktemp -d)"
+ACCEPTS="$WORK/accepts"
+touch "$ACCEPTS"
+
+python3 - "$WORK/port" "$ACCEPTS" <<'EOF' &
+import socket, sys, time
+server = socket.socket()
+server.setsockopt(socket.SOL_SOCKET, socket.SO_REUSEADDR, 1)
+server.bind(("127.0.0.1", 0))
+server.listen(16)
+with open(sys.argv[1], "w") as f:
+    f.write(str(server.getsockname()[1]))
+while True:
+    connection, _ = server.accept()
+    accepted = time.time_ns()
+    with open(sys.argv[2], "a") as f:
+        f.write(f"{accepted}\n")
+    connection.close()
+EOF
+LISTENER=$!
+trap 'kill $LISTENER 2> /dev/null; rm -rf "$WORK"' EXIT
+while [[ ! -s "$WORK/port" ]]; do
+    sleep 0.05
+done
+ARGS=(--github-url "https://127.0.0.1:$(cat "$WORK/port")/bench/startup" --token bench --target-release v0.0.0 --retries 0)
+
+# Run the command once and print the milliseconds until its first connection, or nothing on timeout
+first_request_ms() {
+    local seen start pid tick
+    seen=$(wc -l < "$ACCEPTS")
+    start=$(date +%s%N)
+    "$@" "${ARGS[@]}" > /dev/null 2>&1 &
+    pid=$!
+    for ((tick = 0; tick < 600; tick++)); do
+        if (($(wc -l < "$ACCEPTS") > seen)); then
+            kill $pid 2> /dev/null || true
+            wait $pid 2> /dev/null || true
+            echo $((($(sed -n "$((seen + 1))p" "$ACCEPTS") - start) / 1000000))
+            return
+        fi
+        sleep 0.01
+    done
+    kill $pid 2> /dev/null || true
+    wait $pid 2> /dev/null || true
+}
+
+measure() {
+    local name="$1"
+    shift
+    local total=0 best=0 runs=0
+    for ((i = 0; i < RUNS; i++)); do
+        local elapsed
+        elapsed=$(first_request_ms "$@")
+        if [[ -z "$elapsed" ]]; then
+            echo "$name: no request within 6s, skipping run" >&2
+            continue
+        fi
+        total=$((total + elapsed))
+        runs=$((runs + 1))
+        if ((best == 0 || elapsed < best)); then
+            best=$elapsed
+        fi
+    done
+    if ((runs == 0)); then
+        printf "%-12s failed: no run reached its first request\n" "$name"
+        return
+    fi
+    printf "%-12s avg %5d ms   best %5d ms   (%d runs)\n" "$name" $((total / runs)) "$best" "$runs"
+}
+
+measure "jar" java -jar "$JAR"
+measure "jar-tuned" java -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -Xshare:auto -jar "$JAR"
+
+if [[ -f "$JSA" ]]; then
+    measure "jar-appcds" java -XX:SharedArchiveFile="$JSA" -XX:TieredStopAtLevel=1 -XX:+UseSerialGC -jar "$JAR"
+else
+    echo "jar-appcds   skipped: build with mvn -Pappcds package"
+fi
+
+if [[ -x "$NATIVE" ]]; then
+    measure "native" "$NATIVE"
+else
+    echo "native       skipped: build with mvn -Pnative package (requires GraalVM)"
+fi
@@ -0,0 +1,53 @@
+package org.devmetrics.lt4c;
+
+/**
+ * Optional settings for collecting the pull requests of a release range. Every setting defaults
+ * to running without it.
+ */
+public class AnalysisOptions {
+    private ProgressJournal journal;
+    private LeadTimeSampler sampler;
+    private StageTimings timings = new StageTimings();
+
+    /**
+     * Resume from and record progress to the given journal
+     */
+    public AnalysisOptions journal(ProgressJournal journal) {
+        this.journal = journal;
+        return this;
+    }
+
+    /**
+     * Resolve only the sample of commits chosen by the given sampler instead of every commit
+     */
+    public AnalysisOptions sampler(LeadTimeSampler sampler) {
+        this.sampler = sampler;
+        return this;
+    }
+
+    /**
+     * Add the commit-collection and pr-resolution stages to the given timings
+     */
+    public AnalysisOptions timings(StageTimings timings) {
+        this.timings = timings;
+        return this;
+    }
+
+    /**
+     * Get the progress journal, or null to run without one
+     */
+    public ProgressJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Get the sampler, or null to resolve every commit
+     */
+    public LeadTimeSampler getSampler() {
+        return sampler;
+    }
+
+    public StageTimings getTimings() {
+        return timings;
+    }
+}
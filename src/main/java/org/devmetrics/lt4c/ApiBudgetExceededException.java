@@ -0,0 +1,12 @@
+package org.devmetrics.lt4c;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a GitHub API request would go over the call budget set with --max-api-calls
+ */
+public class ApiBudgetExceededException extends IOException {
+    public ApiBudgetExceededException(int maxCalls) {
+        super("GitHub API call budget of " + maxCalls + " calls exhausted");
+    }
+}
@@ -0,0 +1,145 @@
+package org.devmetrics.lt4c;
+
+import java.util.Date;
+
+/**
+ * Estimate of the GitHub API calls a release analysis will make, produced after the commits of
+ * the release are known but before any of them are resolved to pull requests
+ */
+public class ApiCostPlan {
+    private final int commits;
+    private final int mergeCommits;
+    private final int cachedCommits;
+    private final int commitsToResolve;
+    private final int callsUsed;
+    private final int graphCalls;
+    private final int traversalCalls;
+    private final int resolutionCalls;
+    private final int hydrationCalls;
+    private final int rateLimitRemaining;
+    private final int rateLimit;
+    private final Date rateLimitReset;
+
+    public ApiCostPlan(int commits, int mergeCommits, int cachedCommits, int commitsToResolve, int callsUsed,
+                       int graphCalls, int traversalCalls, int resolutionCalls, int hydrationCalls,
+                       int rateLimitRemaining, int rateLimit, Date rateLimitReset) {
+        this.commits = commits;
+        this.mergeCommits = mergeCommits;
+        this.cachedCommits = cachedCommits;
+        this.commitsToResolve = commitsToResolve;
+        this.callsUsed = callsUsed;
+        this.graphCalls = graphCalls;
+        this.traversalCalls = traversalCalls;
+        this.resolutionCalls = resolutionCalls;
+        this.hydrationCalls = hydrationCalls;
+        this.rateLimitRemaining = rateLimitRemaining;
+        this.rateLimit = rateLimit;
+        this.rateLimitReset = rateLimitReset;
+    }
+
+    /**
+     * Number of commits in the release range, before walking merged branches
+     */
+    public int getCommits() {
+        return commits;
+    }
+
+    /**
+     * Number of merge commits in the release range, or -1 if unknown
+     */
+    public int getMergeCommits() {
+        return mergeCommits;
+    }
+
+    /**
+     * Number of commits already resolved by a previous run, served from the progress journal
+     */
+    public int getCachedCommits() {
+        return cachedCommits;
+    }
+
+    public int getCommitsToResolve() {
+        return commitsToResolve;
+    }
+
+    /**
+     * Calls already made to plan the analysis, including the tag lookups and the compare
+     */
+    public int getCallsUsed() {
+        return callsUsed;
+    }
+
+    /**
+     * Most calls the run may make to list history into the commit graph before it can answer the range
+     */
+    public int getGraphCalls() {
+        return graphCalls;
+    }
+
+    /**
+     * Estimated calls to walk the parents of the commits in the range
+     */
+    public int getTraversalCalls() {
+        return traversalCalls;
+    }
+
+    /**
+     * Estimated calls to look up the pull requests of each commit
+     */
+    public int getResolutionCalls() {
+        return resolutionCalls;
+    }
+
+    /**
+     * Estimated calls to load the details of each pull request found
+     */
+    public int getHydrationCalls() {
+        return hydrationCalls;
+    }
+
+    public int getEstimatedRemainingCalls() {
+        return graphCalls + traversalCalls + resolutionCalls + hydrationCalls;
+    }
+
+    public int getEstimatedTotalCalls() {
+        return callsUsed + getEstimatedRemainingCalls();
+    }
+
+    public int getRateLimitRemaining() {
+        return rateLimitRemaining;
+    }
+
+    public int getRateLimit() {
+        return rateLimit;
+    }
+
+    public Date getRateLimitReset() {
+        return rateLimitReset;
+    }
+
+    /**
+     * Whether the remaining calls fit in what is left of the current rate limit window
+     */
+    public boolean fitsRateLimit() {
+        return getEstimatedRemainingCalls() <= rateLimitRemaining;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Commits in range: %,d (%s merge commits)%n", commits,
+            mergeCommits < 0 ? "unknown" : String.format("%,d", mergeCommits)));
+        sb.append(String.format("Commits to resolve: %,d (%,d already resolved in journal)%n", commitsToResolve, cachedCommits));
+        sb.append(String.format("Calls used for planning: %,d%n", callsUsed));
+        sb.append(String.format("Estimated remaining calls: %,d%n", getEstimatedRemainingCalls()));
+        if (graphCalls > 0) {
+            sb.append(String.format("  * Commit graph extension: up to %,d%n", graphCalls));
+        }
+        sb.append(String.format("  * Parent traversal: %,d%n", traversalCalls));
+        sb.append(String.format("  * PR lookup: %,d%n", resolutionCalls));
+        sb.append(String.format("  * PR details: %,d%n", hydrationCalls));
+        sb.append(String.format("Estimated total calls: %,d%n", getEstimatedTotalCalls()));
+        sb.append(String.format("Rate limit: %,d of %,d remaining, resets %s", rateLimitRemaining, rateLimit, rateLimitReset));
+        return sb.toString();
+    }
+}
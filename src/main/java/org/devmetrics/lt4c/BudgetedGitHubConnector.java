@@ -0,0 +1,57 @@
+package org.devmetrics.lt4c;
+
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connector that counts GitHub API requests and refuses to send more than a maximum number
+ */
+public class BudgetedGitHubConnector implements GitHubConnector {
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private final GitHubConnector delegate;
+    private final AtomicInteger callCount = new AtomicInteger();
+    private volatile int maxCalls = UNLIMITED;
+    private volatile boolean exhausted;
+
+    public BudgetedGitHubConnector(GitHubConnector delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public GitHubConnectorResponse send(GitHubConnectorRequest request) throws IOException {
+        if (callCount.incrementAndGet() > maxCalls) {
+            callCount.decrementAndGet();
+            exhausted = true;
+            throw new ApiBudgetExceededException(maxCalls);
+        }
+        return delegate.send(request);
+    }
+
+    /**
+     * Limit the total number of requests, including those already sent
+     */
+    public void setMaxCalls(int maxCalls) {
+        this.maxCalls = maxCalls;
+    }
+
+    public int getMaxCalls() {
+        return maxCalls;
+    }
+
+    public int getCallCount() {
+        return callCount.get();
+    }
+
+    /**
+     * Whether a request was refused because the budget was used up. A run that needed exactly the
+     * budgeted number of calls is not exhausted.
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+}
@@ -4,7 +4,17 @@ import org.apache.commons.cli.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ch.qos.logback.classic.Level;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import org.kohsuke.github.connector.GitHubConnector;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
 
 public class CLI {
     private static final Logger logger = LoggerFactory.getLogger(CLI.class);
@@ -38,6 +48,128 @@ public class CLI {
                 .required()
                 .build());
 
+        options.addOption(Option.builder("r")
+                .longOpt("resume")
+                .desc("Resume an interrupted analysis from its progress journal")
+                .build());
+
+        options.addOption(Option.builder("j")
+                .longOpt("journal")
+                .desc("Progress journal file (default: .lt4c/<repo>-<from>-<to>.journal)")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("cg")
+                .longOpt("commit-graph")
+                .desc("Commit graph file used to resolve release membership locally (created if missing)")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("c")
+                .longOpt("clone-dir")
+                .desc("Local clone of the repository used to build the commit graph")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("fc")
+                .longOpt("first-release")
+                .desc("Measure each PR against the first release containing it (requires --commit-graph)")
+                .build());
+
+        options.addOption(Option.builder("gb")
+                .longOpt("group-by")
+                .desc("Group PR statistics by a comma-separated list of: author, team, branch, size, lead-time")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("tm")
+                .longOpt("team-map")
+                .desc("Properties file mapping author logins to teams, used by --group-by team")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("jfr")
+                .longOpt("jfr")
+                .desc("Write a Flight Recorder recording with traversal and GitHub API events to the given file")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("ct")
+                .longOpt("connect-timeout")
+                .desc("Connection timeout in seconds for GitHub API requests (default: 10)")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("rt")
+                .longOpt("read-timeout")
+                .desc("Response timeout in seconds for GitHub API requests (default: 60)")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("rc")
+                .longOpt("retries")
+                .desc("Number of retries for GitHub API requests that time out or hit a gateway error (default: 2)")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("w")
+                .longOpt("workers")
+                .desc("Number of commits resolved to PRs at the same time (default: 8)")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("s")
+                .longOpt("sample")
+                .desc("Estimate lead times from a sample of at most this many commits")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("st")
+                .longOpt("sample-time")
+                .desc("Time budget in seconds for a sampled analysis, from commit collection to the last resolved commit")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("ss")
+                .longOpt("sample-strategy")
+                .desc("How to pick sampled commits: stratified (default) or random")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("sd")
+                .longOpt("sample-seed")
+                .desc("Random seed for sampling, to reproduce a sample")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("p")
+                .longOpt("plan")
+                .desc("Estimate the GitHub API calls the analysis needs, print the plan and exit")
+                .build());
+
+        options.addOption(Option.builder("mc")
+                .longOpt("max-api-calls")
+                .desc("Stop cleanly after this many GitHub API calls and report partial results (resume with --resume)")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("rec")
+                .longOpt("record")
+                .desc("Record every GitHub API exchange of the run to the given cassette file")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("rp")
+                .longOpt("replay")
+                .desc("Replay GitHub API responses from the given cassette file instead of calling GitHub (no token needed)")
+                .hasArg()
+                .build());
+
+        options.addOption(Option.builder("rl")
+                .longOpt("replay-latency")
+                .desc("Delay each replayed response by its recorded latency")
+                .build());
+
         options.addOption(Option.builder("g")
                 .longOpt("debug")
                 .desc("Enable debug logging")
@@ -53,7 +185,15 @@ public class CLI {
             String fromRelease = cmd.getOptionValue("from-release");
             String targetRelease = cmd.getOptionValue("target-release");
             
-            if (token == null) {
+            PullRequestAggregator groupAggregator = null;
+            if (cmd.hasOption("group-by")) {
+                groupAggregator = createAggregator(cmd.getOptionValue("group-by"), cmd.getOptionValue("team-map"));
+            }
+
+            if (cmd.hasOption("record") && cmd.hasOption("replay")) {
+                throw new ParseException("--record and --replay cannot be used together");
+            }
+            if (token == null && !cmd.hasOption("replay")) {
                 throw new ParseException("GitHub token must be provided via --token or LT4C_GIT_TOKEN environment variable");
             }
             
@@ -65,25 +205,123 @@ public class CLI {
                 }
             }
 
+            if (cmd.hasOption("jfr")) {
+                startRecording(Paths.get(cmd.getOptionValue("jfr")));
+            }
+
+            long startTime = System.currentTimeMillis();
+
             // Initialize GitHub client
-            GitHubClient githubClient = createGitHubClient(token, githubUrl);
+            GitHubConnector connector;
+            if (cmd.hasOption("replay")) {
+                connector = new ReplayGitHubConnector(Paths.get(cmd.getOptionValue("replay")), cmd.hasOption("replay-latency"));
+            } else {
+                connector = new Http2GitHubConnector(
+                    Duration.ofSeconds(parseIntOption(cmd, "connect-timeout", (int) Http2GitHubConnector.DEFAULT_CONNECT_TIMEOUT.toSeconds())),
+                    Duration.ofSeconds(parseIntOption(cmd, "read-timeout", (int) Http2GitHubConnector.DEFAULT_READ_TIMEOUT.toSeconds())),
+                    parseIntOption(cmd, "retries", Http2GitHubConnector.DEFAULT_MAX_RETRIES));
+            }
+            if (cmd.hasOption("record")) {
+                connector = new RecordingGitHubConnector(connector, openCassette(Paths.get(cmd.getOptionValue("record"))));
+            }
+            GitHubClient githubClient = createGitHubClient(token, githubUrl, connector);
+            githubClient.setWorkers(parseIntOption(cmd, "workers", GitHubClient.DEFAULT_WORKERS));
+            if (cmd.hasOption("max-api-calls")) {
+                githubClient.setMaxApiCalls(parseIntOption(cmd, "max-api-calls", BudgetedGitHubConnector.UNLIMITED));
+            }
             
+            if (cmd.hasOption("first-release") && !cmd.hasOption("commit-graph")) {
+                throw new ParseException("--first-release requires --commit-graph");
+            }
+
             // Initialize the analyzer with GitHub client
             LeadTimeAnalyzer analyzer = new LeadTimeAnalyzer(githubClient);
 
+            CommitGraph commitGraph = null;
+            Path cloneDir = null;
+            if (cmd.hasOption("commit-graph")) {
+                commitGraph = CommitGraph.load(Paths.get(cmd.getOptionValue("commit-graph")));
+                cloneDir = cmd.hasOption("clone-dir") ? Paths.get(cmd.getOptionValue("clone-dir")) : null;
+                githubClient.setCommitGraph(commitGraph, cloneDir);
+            }
+
             // If no from-release specified, find the previous release
             if (fromRelease == null) {
                 logger.info("No --from-release specified, finding previous tag before target release: {}", targetRelease);
-                fromRelease = githubClient.findPreviousReleaseTag(targetRelease);
+                try {
+                    fromRelease = githubClient.findPreviousReleaseTag(targetRelease);
+                } catch (Exception e) {
+                    if (!githubClient.isApiBudgetExhausted()) {
+                        throw e;
+                    }
+                    printBudgetStop(cmd, githubClient, "finding the previous release");
+                    return;
+                }
                 if (fromRelease == null) {
                     throw new Exception("Could not find previous release tag before target release: " + targetRelease);
                 }
                 logger.info("Found previous tag: {}", fromRelease);
             }
 
+            // Planned before the release attribution is built, which can take thousands of calls itself
+            if (cmd.hasOption("plan")) {
+                try {
+                    printPlan(cmd, githubClient, fromRelease, targetRelease);
+                } catch (Exception e) {
+                    if (!githubClient.isApiBudgetExhausted()) {
+                        throw e;
+                    }
+                    printBudgetStop(cmd, githubClient, "planning");
+                }
+                return;
+            }
+
+            if (cmd.hasOption("first-release")) {
+                try {
+                    analyzer.setReleaseAttribution(
+                        ReleaseAttribution.forRepository(githubClient.getRepository(), commitGraph, cloneDir));
+                } catch (Exception e) {
+                    if (!githubClient.isApiBudgetExhausted()) {
+                        throw e;
+                    }
+                    // The history listed so far is saved in the commit graph, so a rerun continues from it
+                    logger.warn("API call budget reached while attributing commits to releases, measuring PRs against {}",
+                        targetRelease);
+                }
+            }
+
+            ProgressJournal journal = null;
+            if (cmd.hasOption("sample")) {
+                // Sampled runs are exploratory and cheap to repeat, so they are not journaled
+                analyzer.setSampler(createSampler(cmd));
+            } else {
+                // Open the progress journal so an interrupted run can be resumed
+                journal = openJournal(cmd, githubClient, fromRelease, targetRelease);
+            }
+
             // Analyze the release
-            ReleaseAnalysis analysis = analyzer.analyzeRelease(targetRelease, fromRelease);
+            ReleaseAnalysis analysis = analyzer.analyzeRelease(targetRelease, fromRelease, journal);
+            if (journal != null) {
+                if (analysis.isPartial()) {
+                    // Keep the journal so that --resume continues where the budget ran out
+                    journal.close();
+                } else {
+                    journal.delete();
+                }
+            }
             printAnalysisResults(analysis);
+            if (analysis.isPartial()) {
+                System.out.printf("%nPartial results: stopped after %d of %d allowed GitHub API calls.%n",
+                    githubClient.getApiCallCount(), parseIntOption(cmd, "max-api-calls", 0));
+                if (journal != null) {
+                    System.out.println("Rerun with --resume to continue the analysis.");
+                }
+            }
+            System.out.printf("%nCompleted in %,d ms with %,d GitHub API calls%n",
+                System.currentTimeMillis() - startTime, githubClient.getApiCallCount());
+            if (groupAggregator != null) {
+                printGroupResults(analysis, groupAggregator);
+            }
 
         } catch (ParseException e) {
             System.err.println("Error: " + e.getMessage());
@@ -92,7 +330,8 @@ public class CLI {
                 "Example:\n" +
                 "  lt4c --github-url https://github.com/org/repo --target-release v1.0.0 --from-release v0.9.0\n\n",
                 options,
-                "\nNote: If --from-release is not specified, the previous release tag will be automatically detected.",
+                "\nNote: If --from-release is not specified, the previous release tag will be automatically detected.\n" +
+                "If a run is interrupted, rerun it with --resume to continue from its progress journal.",
                 true);
             System.exit(1);
         } catch (Exception e) {
@@ -102,9 +341,35 @@ public class CLI {
         }
     }
 
-    private static GitHubClient createGitHubClient(String token, String repoUrl) throws IOException {
+    private static void startRecording(Path destination) throws IOException, java.text.ParseException {
+        Recording recording = new Recording(Configuration.getConfiguration("default"));
+        for (Class<? extends Event> eventType : TraceEvents.eventTypes()) {
+            recording.enable(eventType).withoutStackTrace();
+        }
+        recording.setName("lt4c");
+        recording.setDestination(destination);
+        recording.setDumpOnExit(true);
+        recording.start();
+        logger.info("Recording Flight Recorder events to {}", destination);
+    }
+
+    private static GitHubCassette openCassette(Path path) throws IOException {
+        GitHubCassette cassette = GitHubCassette.create(path);
+        // Close on exit so the recording ends cleanly however the run finishes
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                cassette.close();
+                logger.info("Recorded {} GitHub API calls to {}", cassette.getExchangeCount(), path);
+            } catch (IOException e) {
+                logger.warn("Could not close cassette {}: {}", path, e.getMessage());
+            }
+        }));
+        return cassette;
+    }
+
+    private static GitHubClient createGitHubClient(String token, String repoUrl, GitHubConnector connector) throws IOException {
         try {
-            GitHubClient githubClient = new GitHubClient(token, repoUrl);
+            GitHubClient githubClient = new GitHubClient(token, repoUrl, connector);
             logger.info("Successfully connected to GitHub");
             return githubClient;
         } catch (IOException e) {
@@ -113,6 +378,93 @@ public class CLI {
         }
     }
 
+    private static LeadTimeSampler createSampler(CommandLine cmd) throws ParseException {
+        LeadTimeSampler.Strategy strategy;
+        try {
+            strategy = LeadTimeSampler.Strategy.valueOf(cmd.getOptionValue("sample-strategy", "stratified").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ParseException("Unknown --sample-strategy: " + cmd.getOptionValue("sample-strategy"));
+        }
+        Duration timeBudget = cmd.hasOption("sample-time") ? Duration.ofSeconds(parseIntOption(cmd, "sample-time", 0)) : null;
+        long seed = cmd.hasOption("sample-seed") ? parseIntOption(cmd, "sample-seed", 0) : System.nanoTime();
+        return new LeadTimeSampler(parseIntOption(cmd, "sample", 0), timeBudget, strategy, seed);
+    }
+
+    private static int parseIntOption(CommandLine cmd, String option, int defaultValue) throws ParseException {
+        if (!cmd.hasOption(option)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(cmd.getOptionValue(option));
+        } catch (NumberFormatException e) {
+            throw new ParseException("--" + option + " must be a number: " + cmd.getOptionValue(option));
+        }
+    }
+
+    /**
+     * Report a run that the API call budget stopped before the analysis could start
+     * @param step What the run was doing when the budget ran out
+     */
+    private static void printBudgetStop(CommandLine cmd, GitHubClient githubClient, String step) throws ParseException {
+        System.out.printf("Stopped while %s: used %d of %d allowed GitHub API calls.%n",
+            step, githubClient.getApiCallCount(), parseIntOption(cmd, "max-api-calls", 0));
+    }
+
+    private static void printPlan(CommandLine cmd, GitHubClient githubClient,
+                                  String fromRelease, String targetRelease) throws IOException, ParseException {
+        // Only an existing journal is read when planning; it is left as it is for the real run
+        ProgressJournal journal = null;
+        Path journalPath = journalPath(cmd, githubClient, fromRelease, targetRelease);
+        if (cmd.hasOption("resume") && Files.exists(journalPath)) {
+            journal = ProgressJournal.open(journalPath, fromRelease, targetRelease, true);
+        }
+        try {
+            int sampleSize = cmd.hasOption("sample") ? parseIntOption(cmd, "sample", 0) : 0;
+            ApiCostPlan plan = githubClient.planPullRequestsBetweenTags(fromRelease, targetRelease, journal, sampleSize);
+            System.out.printf("API cost plan for %s to %s:%n", fromRelease, targetRelease);
+            System.out.println(plan);
+            if (cmd.hasOption("first-release")) {
+                System.out.println("Not included: --first-release first lists every release tag and its history into the commit graph.");
+            }
+            if (!plan.fitsRateLimit()) {
+                System.out.println("The analysis is not expected to fit in the remaining rate limit; consider --sample or --max-api-calls.");
+            }
+            int maxApiCalls = parseIntOption(cmd, "max-api-calls", BudgetedGitHubConnector.UNLIMITED);
+            if (plan.getEstimatedTotalCalls() > maxApiCalls) {
+                System.out.printf("The analysis is expected to stop early on the budget of %d calls.%n", maxApiCalls);
+            }
+        } finally {
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+
+    private static Path journalPath(CommandLine cmd, GitHubClient githubClient, String fromRelease, String targetRelease) {
+        return cmd.hasOption("journal")
+            ? Paths.get(cmd.getOptionValue("journal"))
+            : defaultJournalPath(githubClient.getRepository().getFullName(), fromRelease, targetRelease);
+    }
+
+    private static ProgressJournal openJournal(CommandLine cmd, GitHubClient githubClient,
+                                               String fromRelease, String targetRelease) throws IOException {
+        Path journalPath = journalPath(cmd, githubClient, fromRelease, targetRelease);
+        ProgressJournal journal = ProgressJournal.open(journalPath, fromRelease, targetRelease, cmd.hasOption("resume"));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.warn("Could not flush progress journal {}: {}", journalPath, e.getMessage());
+            }
+        }));
+        return journal;
+    }
+
+    private static Path defaultJournalPath(String repoName, String fromRelease, String targetRelease) {
+        String fileName = (repoName + "-" + fromRelease + "-" + targetRelease).replaceAll("[^A-Za-z0-9._-]", "_");
+        return Paths.get(".lt4c", fileName + ".journal");
+    }
+
     private static void printAnalysisResults(ReleaseAnalysis analysis) {
         // Print individual PR details
         System.out.println("Individual PR Details:\n");
@@ -127,8 +479,15 @@ public class CLI {
             analysis.getFromReleaseDate(), analysis.getReleaseDate());
         System.out.printf("Total Pull Requests: %d%n", analysis.getTotalPullRequests());
 
+        SampleSummary sample = analysis.getSampleSummary();
+        if (sample != null) {
+            System.out.printf("Sampled: %d of %d commits (%.1f%%), %d PRs (estimated total: %d)%n",
+                sample.getSampledCommits(), sample.getPopulationCommits(), sample.getSampledFraction() * 100,
+                sample.getSampledPullRequests(), sample.getEstimatedTotalPullRequests());
+        }
+
         // Lead Time Metrics
-        System.out.println("\nLead Time Metrics:");
+        System.out.println(sample == null ? "\nLead Time Metrics:" : "\nLead Time Metrics (estimated from sample):");
         System.out.printf("  * Average: %.1f hours (%.1f days)%n", 
             analysis.getAverageLeadTimeHours(), 
             analysis.getAverageLeadTimeHours() / 24.0);
@@ -138,6 +497,12 @@ public class CLI {
         System.out.printf("  * 90th percentile: %.1f hours (%.1f days)%n", 
             analysis.getP90LeadTimeHours(), 
             analysis.getP90LeadTimeHours() / 24.0);
+        if (sample != null) {
+            System.out.printf("  * Median %.0f%% CI: %.1f - %.1f hours%n", SampleSummary.CONFIDENCE_LEVEL * 100,
+                sample.getMedianLowerHours(), sample.getMedianUpperHours());
+            System.out.printf("  * 90th percentile %.0f%% CI: %.1f - %.1f hours%n", SampleSummary.CONFIDENCE_LEVEL * 100,
+                sample.getP90LowerHours(), sample.getP90UpperHours());
+        }
 
         // Line Changes
         System.out.println("\nLine Changes:");
@@ -147,13 +512,11 @@ public class CLI {
         System.out.printf("  * Average Changes per PR: %.2f lines%n", analysis.getAverageLinesChanged());
 
         // Lead Time Distribution
-        int fastCount = 0, mediumCount = 0, slowCount = 0;
-        for (PullRequest pr : analysis.getPullRequests()) {
-            double leadTime = pr.getLeadTimeHours();
-            if (leadTime < 24) fastCount++;
-            else if (leadTime < 72) mediumCount++;
-            else slowCount++;
-        }
+        Map<List<String>, PullRequestAggregator.GroupStats> distribution = analysis.groupBy(
+            new PullRequestAggregator(List.of(PullRequestAggregator.Dimension.LEAD_TIME), null));
+        int fastCount = groupCount(distribution, "Fast");
+        int mediumCount = groupCount(distribution, "Medium");
+        int slowCount = groupCount(distribution, "Slow");
         int total = analysis.getTotalPullRequests();
         
         System.out.println("\nLead Time Distribution:");
@@ -163,5 +526,67 @@ public class CLI {
             mediumCount, (mediumCount * 100.0) / total);
         System.out.printf("  * Slow (> 72 hours): %d PRs (%.1f%%)%n", 
             slowCount, (slowCount * 100.0) / total);
+        int unknownCount = groupCount(distribution, PullRequestAggregator.UNKNOWN_LEAD_TIME);
+        if (unknownCount > 0) {
+            System.out.printf("  * Unknown (release date not resolved): %d PRs (%.1f%%)%n",
+                unknownCount, (unknownCount * 100.0) / total);
+        }
+
+        // Stage Timings
+        StageTimings timings = analysis.getStageTimings();
+        if (timings != null) {
+            System.out.println("\nStage Timings:");
+            for (Map.Entry<String, Duration> stage : timings.getDurations().entrySet()) {
+                System.out.printf("  * %s: %,d ms (started at +%,d ms)%n", stage.getKey(),
+                    stage.getValue().toMillis(), timings.getStartOffset(stage.getKey()).toMillis());
+            }
+            System.out.printf("  * total: %,d ms%n", timings.getTotal().toMillis());
+        }
+    }
+
+    private static int groupCount(Map<List<String>, PullRequestAggregator.GroupStats> groups, String key) {
+        PullRequestAggregator.GroupStats stats = groups.get(List.of(key));
+        return stats == null ? 0 : stats.getCount();
+    }
+
+    private static PullRequestAggregator createAggregator(String groupBy, String teamMapFile) throws ParseException, IOException {
+        List<PullRequestAggregator.Dimension> dimensions = new ArrayList<>();
+        for (String name : groupBy.split(",")) {
+            try {
+                dimensions.add(PullRequestAggregator.Dimension.parse(name));
+            } catch (IllegalArgumentException e) {
+                throw new ParseException("Unknown --group-by dimension: " + name.trim());
+            }
+        }
+
+        Map<String, String> authorTeams = new HashMap<>();
+        if (teamMapFile != null) {
+            Properties teams = new Properties();
+            try (Reader reader = Files.newBufferedReader(Paths.get(teamMapFile))) {
+                teams.load(reader);
+            }
+            for (String author : teams.stringPropertyNames()) {
+                authorTeams.put(author, teams.getProperty(author));
+            }
+        } else if (dimensions.contains(PullRequestAggregator.Dimension.TEAM)) {
+            throw new ParseException("--group-by team requires --team-map");
+        }
+        return new PullRequestAggregator(dimensions, authorTeams);
+    }
+
+    private static void printGroupResults(ReleaseAnalysis analysis, PullRequestAggregator aggregator) {
+        Map<List<String>, PullRequestAggregator.GroupStats> groups = analysis.groupBy(aggregator);
+
+        System.out.printf("%nGrouped by %s:%n", aggregator.getDimensions());
+        for (Map.Entry<List<String>, PullRequestAggregator.GroupStats> group : groups.entrySet()) {
+            PullRequestAggregator.GroupStats stats = group.getValue();
+            System.out.printf("  * %s: %d PRs, %,d lines (+%,d -%,d), lead time avg %.1f h, median %.1f h, p90 %.1f h%n",
+                String.join(" / ", group.getKey()),
+                stats.getCount(),
+                stats.getLinesChanged(), stats.getLinesAdded(), stats.getLinesDeleted(),
+                stats.getAverageLeadTimeHours(),
+                stats.getMedianLeadTimeHours(),
+                stats.getLeadTimePercentile(90));
+        }
     }
 }
@@ -0,0 +1,772 @@
+package org.devmetrics.lt4c;
+
+import org.kohsuke.github.GHCommit;
+import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.PagedIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.BufferedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Compact index of the commit history of a repository, used to answer release membership
+ * queries ("reachable from B but not from A") locally instead of through the compare API.
+ *
+ * Commits are stored by index in a SHA table alongside their parent indices, commit time and
+ * generation number. The generation of a commit is one more than the highest generation of its
+ * parents, so a walk in descending generation order visits every child before its parents and
+ * can stop as soon as nothing interesting is left to find.
+ *
+ * Commits referenced only as parents are kept as boundary entries with generation 0 until their
+ * own data is added, which lets the graph be extended incrementally as new history is needed.
+ *
+ * The file is memory-mapped rather than read: commits are looked up by binary search over its
+ * sorted SHA table and their data is read in place, so loading does not depend on the size of
+ * the history. Commits added afterwards are kept on the heap until the graph is saved.
+ *
+ * The graph also remembers the commit each annotated tag object points to. Tag objects never
+ * change, so these entries stay valid even when a tag is moved to a new tag object.
+ *
+ * File layout (big-endian):
+ * <pre>
+ * magic "LT4CCG01", int commitCount, int extraEdgeCount, int tagCount
+ * SHA table          commitCount x 20 bytes, in ascending order
+ * commit data        commitCount x (int parent1, int parent2, int generation, long commitTime)
+ * extra edges        extraEdgeCount x (int child, int parent), for third and later parents
+ * annotated tags     tagCount x (20 bytes tag object SHA, 20 bytes commit SHA)
+ * </pre>
+ */
+public class CommitGraph {
+    private static final Logger logger = LoggerFactory.getLogger(CommitGraph.class);
+    private static final byte[] MAGIC = "LT4CCG01".getBytes(StandardCharsets.US_ASCII);
+    private static final int SHA_BYTES = 20;
+    private static final int RECORD_BYTES = 20;
+    private static final int HEADER_BYTES = 20;
+    private static final int NO_PARENT = -1;
+    private static final int GENERATION_UNKNOWN = 0;
+    private static final int API_CHECK_INTERVAL = 500;
+    // Commits listed per API call when extending the graph
+    static final int API_PAGE_SIZE = 100;
+
+    private static final byte FLAG_TO = 1;
+    private static final byte FLAG_FROM = 2;
+    private static final byte FLAG_QUEUED = 4;
+
+    private final Path path;
+    // Commits from the graph file, indices 0 to baseCount - 1
+    private final ByteBuffer base;
+    private final int baseCount;
+    // Commits added since loading, indices from baseCount on
+    private final Map<String, Integer> added = new HashMap<>();
+    private final Map<Integer, int[]> extraParents = new HashMap<>();
+    private final Map<String, String> tagCommits = new HashMap<>();
+    private byte[] shas;
+    private int[] firstParents;
+    private int[] secondParents;
+    private int[] generations;
+    private long[] commitTimes;
+    private int count;
+    private boolean[] unknownHistory;
+    private boolean generationsDirty;
+    private boolean modified;
+
+    private CommitGraph(Path path, ByteBuffer base, int baseCount) {
+        this.path = path;
+        this.base = base;
+        this.baseCount = baseCount;
+        this.count = baseCount;
+        allocate(1024);
+    }
+
+    /**
+     * Load the commit graph stored at the given path, or start an empty one if it does not exist yet
+     */
+    public static CommitGraph load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            logger.info("No commit graph at {}, starting a new one", path);
+            return new CommitGraph(path, null, 0);
+        }
+
+        long startTime = System.currentTimeMillis();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // A private mapping lets boundary entries be filled in place without writing to the file
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.PRIVATE, 0, channel.size());
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a commit graph file: " + path);
+            }
+            int commitCount = buffer.getInt();
+            int extraEdgeCount = buffer.getInt();
+            int tagCount = buffer.getInt();
+
+            CommitGraph graph = new CommitGraph(path, buffer, commitCount);
+            buffer.position(HEADER_BYTES + commitCount * (SHA_BYTES + RECORD_BYTES));
+            for (int i = 0; i < extraEdgeCount; i++) {
+                int child = buffer.getInt();
+                int parent = buffer.getInt();
+                int[] existing = graph.extraParents.getOrDefault(child, new int[0]);
+                int[] updated = Arrays.copyOf(existing, existing.length + 1);
+                updated[existing.length] = parent;
+                graph.extraParents.put(child, updated);
+            }
+            byte[] tagSha = new byte[SHA_BYTES];
+            byte[] commitSha = new byte[SHA_BYTES];
+            for (int i = 0; i < tagCount; i++) {
+                buffer.get(tagSha);
+                buffer.get(commitSha);
+                graph.tagCommits.put(HexFormat.of().formatHex(tagSha), HexFormat.of().formatHex(commitSha));
+            }
+
+            logger.info("Loaded commit graph with {} commits from {} in {}ms",
+                commitCount, path, System.currentTimeMillis() - startTime);
+            return graph;
+        }
+    }
+
+    /**
+     * Write the commit graph to its file if it changed since it was loaded
+     */
+    public void save() throws IOException {
+        if (!modified) {
+            return;
+        }
+        updateGenerations();
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+        int extraEdgeCount = extraParents.values().stream().mapToInt(parents -> parents.length).sum();
+
+        // The file stores commits in SHA order, so indices are renumbered on the way out
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, this::compareShas);
+        int[] positions = new int[count + 1];
+        positions[0] = NO_PARENT;
+        for (int i = 0; i < count; i++) {
+            positions[order[i] + 1] = i;
+        }
+
+        byte[] sha = new byte[SHA_BYTES];
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.write(MAGIC);
+            out.writeInt(count);
+            out.writeInt(extraEdgeCount);
+            out.writeInt(tagCommits.size());
+            for (int commit : order) {
+                readSha(commit, sha);
+                out.write(sha);
+            }
+            for (int commit : order) {
+                out.writeInt(positions[firstParent(commit) + 1]);
+                out.writeInt(positions[secondParent(commit) + 1]);
+                out.writeInt(generation(commit));
+                out.writeLong(commitTime(commit));
+            }
+            for (Map.Entry<Integer, int[]> entry : extraParents.entrySet()) {
+                for (int parent : entry.getValue()) {
+                    out.writeInt(positions[entry.getKey() + 1]);
+                    out.writeInt(positions[parent + 1]);
+                }
+            }
+            for (Map.Entry<String, String> tag : tagCommits.entrySet()) {
+                out.write(HexFormat.of().parseHex(tag.getKey()));
+                out.write(HexFormat.of().parseHex(tag.getValue()));
+            }
+        }
+        Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        modified = false;
+        logger.info("Saved commit graph with {} commits to {}", count, path);
+    }
+
+    /**
+     * Add a commit and its parents to the graph
+     * @param sha The commit SHA
+     * @param parentShas SHAs of the commit's parents, first parent first
+     * @param commitTime Commit time in milliseconds since the epoch
+     */
+    public void addCommit(String sha, List<String> parentShas, long commitTime) {
+        int commit = indexOf(sha);
+        if (isParsed(commit)) {
+            return;
+        }
+        int[] parents = new int[parentShas.size()];
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = indexOf(parentShas.get(i));
+        }
+        int first = parents.length > 0 ? parents[0] : NO_PARENT;
+        int second = parents.length > 1 ? parents[1] : NO_PARENT;
+        if (parents.length > 2) {
+            extraParents.put(commit, Arrays.copyOfRange(parents, 2, parents.length));
+        }
+        // Any non-zero generation marks the commit as parsed until the real one is computed
+        setRecord(commit, first, second, 1, commitTime);
+        unknownHistory = null;
+        generationsDirty = true;
+        modified = true;
+    }
+
+    /**
+     * Remember the commit an annotated tag object points to
+     * @param tagSha SHA of the tag object
+     * @param commitSha SHA of the tagged commit
+     */
+    public void addTagCommit(String tagSha, String commitSha) {
+        if (!commitSha.equals(tagCommits.put(tagSha, commitSha))) {
+            modified = true;
+        }
+    }
+
+    /**
+     * Get the commit an annotated tag object points to
+     * @return The commit SHA, or null if the tag object is not known
+     */
+    public String getTagCommit(String tagSha) {
+        return tagCommits.get(tagSha);
+    }
+
+    public boolean contains(String sha) {
+        int commit = find(sha);
+        return commit != NO_PARENT && isParsed(commit);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Get the commits reachable from one commit but not from another, walking the graph in
+     * descending generation order and stopping as soon as only commits reachable from both remain.
+     * @param fromSha Commit of the earlier release
+     * @param toSha Commit of the later release
+     * @return SHAs of the commits in the range, newest generation first, or null if the graph
+     *         does not yet hold enough history to answer
+     */
+    public List<String> commitsBetween(String fromSha, String toSha) {
+        if (!contains(fromSha) || !contains(toSha)) {
+            return null;
+        }
+        int to = find(toSha);
+        int from = find(fromSha);
+        if (hasUnknownHistory(from)) {
+            // Generations say nothing about unknown history, which could reach any commit of the range
+            logger.debug("Commit graph does not hold the full history of {}", fromSha);
+            return null;
+        }
+        updateGenerations();
+
+        byte[] flags = new byte[count];
+        PriorityQueue<Integer> queue = new PriorityQueue<>((a, b) -> generation(a) != generation(b)
+            ? Integer.compare(generation(b), generation(a)) : Integer.compare(a, b));
+        int[] interesting = {0};
+
+        flags[to] |= FLAG_TO;
+        flags[from] |= FLAG_FROM;
+        enqueue(to, flags, queue, interesting);
+        if (from != to) {
+            enqueue(from, flags, queue, interesting);
+        }
+
+        List<String> result = new ArrayList<>();
+        while (!queue.isEmpty() && interesting[0] > 0) {
+            int commit = queue.poll();
+            byte commitFlags = flags[commit];
+            boolean onlyTo = (commitFlags & FLAG_TO) != 0 && (commitFlags & FLAG_FROM) == 0;
+            if (onlyTo) {
+                interesting[0]--;
+            }
+            if (!isParsed(commit)) {
+                // Reached the edge of the known history while the answer is still open
+                logger.debug("Commit graph walk reached unknown commit {}", shaAt(commit));
+                return null;
+            }
+            if (onlyTo) {
+                result.add(shaAt(commit));
+            }
+            byte inherited = (byte) (commitFlags & (FLAG_TO | FLAG_FROM));
+            for (int parent : parentsOf(commit)) {
+                boolean wasOnlyTo = (flags[parent] & FLAG_QUEUED) != 0
+                    && (flags[parent] & FLAG_TO) != 0 && (flags[parent] & FLAG_FROM) == 0;
+                flags[parent] |= inherited;
+                if ((flags[parent] & FLAG_QUEUED) == 0) {
+                    enqueue(parent, flags, queue, interesting);
+                } else if (wasOnlyTo && (flags[parent] & FLAG_FROM) != 0) {
+                    interesting[0]--;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Label every known commit with the first of the given releases that contains it, in a single
+     * pass: each release only walks the history not already claimed by an earlier release.
+     * @param releaseShas Release commits, earliest release first
+     * @return Map from commit SHA to the position of its first containing release in releaseShas
+     */
+    public Map<String, Integer> firstContainingReleases(List<String> releaseShas) {
+        int[] labels = new int[count];
+        Arrays.fill(labels, -1);
+        Deque<Integer> stack = new ArrayDeque<>();
+        Map<String, Integer> result = new HashMap<>();
+
+        for (int release = 0; release < releaseShas.size(); release++) {
+            int tip = find(releaseShas.get(release));
+            if (tip == NO_PARENT || labels[tip] != -1) {
+                continue;
+            }
+            labels[tip] = release;
+            stack.push(tip);
+            while (!stack.isEmpty()) {
+                int commit = stack.pop();
+                if (!isParsed(commit)) {
+                    continue;
+                }
+                result.put(shaAt(commit), release);
+                // Ancestors of a commit claimed by an earlier release were claimed by that release too
+                for (int parent : parentsOf(commit)) {
+                    if (labels[parent] == -1) {
+                        labels[parent] = release;
+                        stack.push(parent);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of parents of a commit in the graph
+     * @return The parent count, or -1 if the commit is not in the graph
+     */
+    public int getParentCount(String sha) {
+        return contains(sha) ? parentsOf(find(sha)).length : -1;
+    }
+
+    /**
+     * Get the commit time of a commit in the graph
+     * @return The commit time, or null if the commit is not in the graph
+     */
+    public Date getCommitTime(String sha) {
+        return contains(sha) ? new Date(commitTime(find(sha))) : null;
+    }
+
+    private void enqueue(int commit, byte[] flags, PriorityQueue<Integer> queue, int[] interesting) {
+        flags[commit] |= FLAG_QUEUED;
+        if ((flags[commit] & FLAG_TO) != 0 && (flags[commit] & FLAG_FROM) == 0) {
+            interesting[0]++;
+        }
+        queue.add(commit);
+    }
+
+    /**
+     * Extend the graph through the GitHub API until it can answer a range query
+     * @param repository Repository to list commits from
+     * @param fromSha Commit of the earlier release
+     * @param toSha Commit of the later release
+     * @param maxNewCommits Upper bound on the number of commits to add
+     * @return The commits in the range, or null if the graph still cannot answer
+     */
+    public List<String> extendFromApi(GHRepository repository, String fromSha, String toSha, int maxNewCommits) throws IOException {
+        List<List<String>> result = new ArrayList<>(Collections.singletonList(commitsBetween(fromSha, toSha)));
+        int added = 0;
+        for (String tip : List.of(toSha, fromSha)) {
+            if (result.get(0) != null || added >= maxNewCommits) {
+                break;
+            }
+            Set<String> unknown = unknownAncestors(List.of(tip));
+            if (unknown.isEmpty()) {
+                continue;
+            }
+            logger.info("Extending commit graph from {} ({} unknown commits to reach)", tip.substring(0, 8), unknown.size());
+            // List from the edge of the known history rather than from the tip, so that history saved
+            // by an interrupted run is not listed again
+            while (!unknown.isEmpty() && result.get(0) == null && added < maxNewCommits) {
+                String start = unknown.iterator().next();
+                added += walkApiHistory(repository, start, new HashSet<>(Set.of(start)), maxNewCommits - added, newCommits -> {
+                    // Re-check the range now and then so the walk stops as soon as it can be answered
+                    if (newCommits % API_CHECK_INTERVAL != 0) {
+                        return false;
+                    }
+                    result.set(0, commitsBetween(fromSha, toSha));
+                    return result.get(0) != null;
+                });
+                unknown.remove(start);
+                unknown.removeIf(this::contains);
+                if (result.get(0) == null) {
+                    result.set(0, commitsBetween(fromSha, toSha));
+                }
+            }
+        }
+        logger.info("Added {} commits to the commit graph from the GitHub API", added);
+        return result.get(0);
+    }
+
+    /**
+     * Extend the graph through the GitHub API until the full history of some commits is known.
+     * The unknown commits at the edge of their known history are found in a single pass, and
+     * history is listed from each of them in turn until everything below it is known.
+     * @param repository Repository to list commits from
+     * @param tipShas Commits whose history should be added
+     * @param maxNewCommits Upper bound on the number of commits to add
+     * @return The number of commits added
+     */
+    public int extendHistoryFromApi(GHRepository repository, Collection<String> tipShas, int maxNewCommits) throws IOException {
+        Set<String> unknown = unknownAncestors(tipShas);
+        if (!unknown.isEmpty()) {
+            logger.info("Extending commit graph to the history of {} commits ({} unknown commits to reach)",
+                tipShas.size(), unknown.size());
+        }
+        int added = 0;
+        while (!unknown.isEmpty() && added < maxNewCommits) {
+            String start = unknown.iterator().next();
+            added += walkApiHistory(repository, start, new HashSet<>(Set.of(start)), maxNewCommits - added, newCommits -> false);
+            unknown.remove(start);
+            unknown.removeIf(this::contains);
+        }
+        logger.info("Added {} commits to the commit graph from the GitHub API", added);
+        return added;
+    }
+
+    /**
+     * List history from a commit until none of the pending unknown commits below it are left
+     * @param pending Unknown commits to reach, updated as the listing goes
+     */
+    private int walkApiHistory(GHRepository repository, String tipSha, Set<String> pending, int maxNewCommits,
+                               IntPredicate done) throws IOException {
+        int added = 0;
+        PagedIterator<GHCommit> commits = repository.queryCommits().from(tipSha).pageSize(API_PAGE_SIZE).list().iterator();
+        while (commits.hasNext() && !pending.isEmpty() && added < maxNewCommits) {
+            GHCommit commit = commits.next();
+            String sha = commit.getSHA1();
+            if (!contains(sha)) {
+                addCommit(sha, commit.getParentSHA1s(), commit.getCommitDate().getTime());
+                added++;
+                if (done.test(added)) {
+                    break;
+                }
+            }
+            pending.remove(sha);
+            for (String parentSha : commit.getParentSHA1s()) {
+                if (!contains(parentSha)) {
+                    pending.add(parentSha);
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Extend the graph from a local clone of the repository using git log
+     * @param cloneDir Directory of the local clone
+     * @param tipShas Commits whose history should be added
+     */
+    public void extendFromLocalClone(Path cloneDir, String... tipShas) throws IOException {
+        List<String> command = new ArrayList<>(List.of("git", "-C", cloneDir.toString(), "log", "--format=%H %ct %P"));
+        command.addAll(Arrays.asList(tipShas));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+        int added = 0;
+        List<String> output = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length < 2 || parts[0].length() != SHA_BYTES * 2) {
+                    output.add(line);
+                    continue;
+                }
+                if (!contains(parts[0])) {
+                    addCommit(parts[0], Arrays.asList(parts).subList(2, parts.length), Long.parseLong(parts[1]) * 1000);
+                    added++;
+                }
+            }
+        }
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException("git log failed in " + cloneDir + ": " + String.join("\n", output));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading history from " + cloneDir, e);
+        }
+        logger.info("Added {} commits to the commit graph from local clone {}", added, cloneDir);
+    }
+
+    /**
+     * Find the commits missing from the graph that the given commits reach through known history
+     */
+    private Set<String> unknownAncestors(Collection<String> shas) {
+        Set<String> unknown = new HashSet<>();
+        boolean[] seen = new boolean[count];
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (String sha : shas) {
+            int start = find(sha);
+            if (start == NO_PARENT) {
+                unknown.add(sha);
+            } else if (!seen[start]) {
+                seen[start] = true;
+                stack.push(start);
+            }
+        }
+        while (!stack.isEmpty()) {
+            int commit = stack.pop();
+            if (!isParsed(commit)) {
+                unknown.add(shaAt(commit));
+                continue;
+            }
+            for (int parent : parentsOf(commit)) {
+                if (!seen[parent]) {
+                    seen[parent] = true;
+                    stack.push(parent);
+                }
+            }
+        }
+        return unknown;
+    }
+
+    /**
+     * Recompute generation numbers after commits were added, visiting parents before children
+     */
+    private void updateGenerations() {
+        if (!generationsDirty) {
+            return;
+        }
+        int[] updated = new int[count];
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (int root = 0; root < count; root++) {
+            if (updated[root] != 0 || !isParsed(root)) {
+                continue;
+            }
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                int commit = stack.peek();
+                int generation = 1;
+                boolean ready = true;
+                for (int parent : parentsOf(commit)) {
+                    if (!isParsed(parent)) {
+                        continue;
+                    }
+                    if (updated[parent] == 0) {
+                        ready = false;
+                        stack.push(parent);
+                    } else {
+                        generation = Math.max(generation, updated[parent] + 1);
+                    }
+                }
+                if (ready) {
+                    stack.pop();
+                    updated[commit] = generation;
+                }
+            }
+        }
+        for (int commit = 0; commit < count; commit++) {
+            setGeneration(commit, updated[commit]);
+        }
+        generationsDirty = false;
+    }
+
+    /**
+     * Whether any ancestor of a commit is missing from the graph, found for all commits in one
+     * pass after commits were added, visiting parents before children
+     */
+    private boolean hasUnknownHistory(int start) {
+        if (unknownHistory == null) {
+            boolean[] unknown = new boolean[count];
+            boolean[] done = new boolean[count];
+            Deque<Integer> stack = new ArrayDeque<>();
+            for (int root = 0; root < count; root++) {
+                if (done[root]) {
+                    continue;
+                }
+                stack.push(root);
+                while (!stack.isEmpty()) {
+                    int commit = stack.peek();
+                    boolean ready = true;
+                    unknown[commit] = !isParsed(commit);
+                    if (isParsed(commit)) {
+                        for (int parent : parentsOf(commit)) {
+                            if (!done[parent]) {
+                                ready = false;
+                                stack.push(parent);
+                            } else if (unknown[parent]) {
+                                unknown[commit] = true;
+                            }
+                        }
+                    }
+                    if (ready) {
+                        stack.pop();
+                        done[commit] = true;
+                    }
+                }
+            }
+            unknownHistory = unknown;
+        }
+        return unknownHistory[start];
+    }
+
+    private int[] parentsOf(int commit) {
+        int first = firstParent(commit);
+        if (first == NO_PARENT) {
+            return new int[0];
+        }
+        int second = secondParent(commit);
+        if (second == NO_PARENT) {
+            return new int[] {first};
+        }
+        int[] extra = extraParents.getOrDefault(commit, new int[0]);
+        int[] parents = new int[2 + extra.length];
+        parents[0] = first;
+        parents[1] = second;
+        System.arraycopy(extra, 0, parents, 2, extra.length);
+        return parents;
+    }
+
+    /**
+     * Find a commit by binary search over the SHA table of the file, then among the added commits
+     * @return The index of the commit, or NO_PARENT if it is not in the graph
+     */
+    private int find(String sha) {
+        byte[] raw = HexFormat.of().parseHex(sha);
+        int low = 0;
+        int high = baseCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = 0;
+            int offset = HEADER_BYTES + middle * SHA_BYTES;
+            for (int i = 0; i < SHA_BYTES && comparison == 0; i++) {
+                comparison = Integer.compare(base.get(offset + i) & 0xff, raw[i] & 0xff);
+            }
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return added.getOrDefault(sha, NO_PARENT);
+    }
+
+    private int indexOf(String sha) {
+        int existing = find(sha);
+        if (existing != NO_PARENT) {
+            return existing;
+        }
+        if (count - baseCount == firstParents.length) {
+            grow();
+        }
+        int commit = count++;
+        byte[] raw = HexFormat.of().parseHex(sha);
+        System.arraycopy(raw, 0, shas, (commit - baseCount) * SHA_BYTES, SHA_BYTES);
+        setRecord(commit, NO_PARENT, NO_PARENT, GENERATION_UNKNOWN, 0);
+        added.put(sha, commit);
+        unknownHistory = null;
+        modified = true;
+        return commit;
+    }
+
+    private boolean isParsed(int commit) {
+        return generation(commit) != GENERATION_UNKNOWN;
+    }
+
+    private int firstParent(int commit) {
+        return commit < baseCount ? base.getInt(recordOffset(commit)) : firstParents[commit - baseCount];
+    }
+
+    private int secondParent(int commit) {
+        return commit < baseCount ? base.getInt(recordOffset(commit) + 4) : secondParents[commit - baseCount];
+    }
+
+    private int generation(int commit) {
+        return commit < baseCount ? base.getInt(recordOffset(commit) + 8) : generations[commit - baseCount];
+    }
+
+    private long commitTime(int commit) {
+        return commit < baseCount ? base.getLong(recordOffset(commit) + 12) : commitTimes[commit - baseCount];
+    }
+
+    private void setGeneration(int commit, int generation) {
+        if (commit < baseCount) {
+            base.putInt(recordOffset(commit) + 8, generation);
+        } else {
+            generations[commit - baseCount] = generation;
+        }
+    }
+
+    private void setRecord(int commit, int firstParent, int secondParent, int generation, long commitTime) {
+        if (commit < baseCount) {
+            int offset = recordOffset(commit);
+            base.putInt(offset, firstParent);
+            base.putInt(offset + 4, secondParent);
+            base.putInt(offset + 8, generation);
+            base.putLong(offset + 12, commitTime);
+        } else {
+            firstParents[commit - baseCount] = firstParent;
+            secondParents[commit - baseCount] = secondParent;
+            generations[commit - baseCount] = generation;
+            commitTimes[commit - baseCount] = commitTime;
+        }
+    }
+
+    private int recordOffset(int commit) {
+        return HEADER_BYTES + baseCount * SHA_BYTES + commit * RECORD_BYTES;
+    }
+
+    private void readSha(int commit, byte[] sha) {
+        if (commit < baseCount) {
+            base.get(HEADER_BYTES + commit * SHA_BYTES, sha);
+        } else {
+            System.arraycopy(shas, (commit - baseCount) * SHA_BYTES, sha, 0, SHA_BYTES);
+        }
+    }
+
+    private String shaAt(int commit) {
+        byte[] sha = new byte[SHA_BYTES];
+        readSha(commit, sha);
+        return HexFormat.of().formatHex(sha);
+    }
+
+    private int compareShas(int a, int b) {
+        byte[] first = new byte[SHA_BYTES];
+        byte[] second = new byte[SHA_BYTES];
+        readSha(a, first);
+        readSha(b, second);
+        return Arrays.compareUnsigned(first, second);
+    }
+
+    private void allocate(int capacity) {
+        shas = new byte[capacity * SHA_BYTES];
+        firstParents = new int[capacity];
+        secondParents = new int[capacity];
+        generations = new int[capacity];
+        commitTimes = new long[capacity];
+    }
+
+    private void grow() {
+        int capacity = firstParents.length * 2;
+        shas = Arrays.copyOf(shas, capacity * SHA_BYTES);
+        firstParents = Arrays.copyOf(firstParents, capacity);
+        secondParents = Arrays.copyOf(secondParents, capacity);
+        generations = Arrays.copyOf(generations, capacity);
+        commitTimes = Arrays.copyOf(commitTimes, capacity);
+    }
+}
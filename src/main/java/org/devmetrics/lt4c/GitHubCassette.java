@@ -0,0 +1,175 @@
+package org.devmetrics.lt4c;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip-compressed file of recorded GitHub API exchanges, written by {@link RecordingGitHubConnector}
+ * and served by {@link ReplayGitHubConnector}.
+ *
+ * The file starts with a magic string followed by one entry per exchange: method, URL, status,
+ * latency in milliseconds, headers and the decoded response body. Entries are flushed as they are
+ * written, so a cassette cut short by an interrupted run is still readable up to its last entry.
+ */
+public class GitHubCassette implements Closeable {
+    private static final String MAGIC = "LT4CGC01";
+
+    /**
+     * One recorded request and its response
+     */
+    public static class Exchange {
+        private final String method;
+        private final String url;
+        private final int status;
+        private final long latencyMs;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+
+        public Exchange(String method, String url, int status, long latencyMs,
+                        Map<String, List<String>> headers, byte[] body) {
+            this.method = method;
+            this.url = url;
+            this.status = status;
+            this.latencyMs = latencyMs;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public long getLatencyMs() {
+            return latencyMs;
+        }
+
+        public Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+
+    private final Path path;
+    private final DataOutputStream out;
+    private int exchangeCount;
+
+    private GitHubCassette(Path path, DataOutputStream out) {
+        this.path = path;
+        this.out = out;
+    }
+
+    /**
+     * Create a new cassette, replacing any existing file
+     */
+    public static GitHubCassette create(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new GZIPOutputStream(Files.newOutputStream(path), true)));
+        out.writeUTF(MAGIC);
+        return new GitHubCassette(path, out);
+    }
+
+    /**
+     * Read every exchange recorded in a cassette, in the order they were recorded
+     */
+    public static List<Exchange> read(Path path) throws IOException {
+        List<Exchange> exchanges = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(path))))) {
+            if (!MAGIC.equals(in.readUTF())) {
+                throw new IOException("Not a GitHub cassette: " + path);
+            }
+            while (true) {
+                Exchange exchange;
+                try {
+                    exchange = readExchange(in);
+                } catch (EOFException e) {
+                    // End of the file, or the last entry of an interrupted recording
+                    break;
+                }
+                exchanges.add(exchange);
+            }
+        }
+        return exchanges;
+    }
+
+    public synchronized void write(Exchange exchange) throws IOException {
+        out.writeUTF(exchange.getMethod());
+        out.writeUTF(exchange.getUrl());
+        out.writeInt(exchange.getStatus());
+        out.writeLong(exchange.getLatencyMs());
+
+        List<Map.Entry<String, List<String>>> headers = new ArrayList<>();
+        for (Map.Entry<String, List<String>> header : exchange.getHeaders().entrySet()) {
+            if (header.getKey() != null) {
+                headers.add(header);
+            }
+        }
+        out.writeInt(headers.size());
+        for (Map.Entry<String, List<String>> header : headers) {
+            out.writeUTF(header.getKey());
+            out.writeInt(header.getValue().size());
+            for (String value : header.getValue()) {
+                out.writeUTF(value);
+            }
+        }
+
+        out.writeInt(exchange.getBody().length);
+        out.write(exchange.getBody());
+        out.flush();
+        exchangeCount++;
+    }
+
+    private static Exchange readExchange(DataInputStream in) throws IOException {
+        String method = in.readUTF();
+        String url = in.readUTF();
+        int status = in.readInt();
+        long latencyMs = in.readLong();
+
+        int headerCount = in.readInt();
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (int i = 0; i < headerCount; i++) {
+            String name = in.readUTF();
+            int valueCount = in.readInt();
+            List<String> values = new ArrayList<>(valueCount);
+            for (int j = 0; j < valueCount; j++) {
+                values.add(in.readUTF());
+            }
+            headers.put(name, values);
+        }
+
+        byte[] body = new byte[in.readInt()];
+        in.readFully(body);
+        return new Exchange(method, url, status, latencyMs, headers, body);
+    }
+
+    public int getExchangeCount() {
+        return exchangeCount;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -1,18 +1,44 @@
 package org.devmetrics.lt4c;
 
 import org.kohsuke.github.*;
+import org.kohsuke.github.connector.GitHubConnector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class GitHubClient {
     private static final Logger logger = LoggerFactory.getLogger(GitHubClient.class);
+    private static final int MAX_GRAPH_EXTENSION_COMMITS = 50_000;
+    public static final int DEFAULT_WORKERS = 8;
+    private static final int PIPELINE_QUEUE_CAPACITY = 256;
+    // Marks the end of the collected commits for each pipeline worker
+    private static final String END_OF_COMMITS = "";
     private final GitHub github;
     private final GHRepository repository;
+    private final BudgetedGitHubConnector callBudget;
+    // Commit SHA lookups of the tags seen so far, shared by tag resolution and commit collection
+    private final Map<String, CompletableFuture<String>> tagCommitShas = new ConcurrentHashMap<>();
+    private CommitGraph commitGraph;
+    private Path localClone;
+    private int workers = DEFAULT_WORKERS;
 
     public GitHubClient(String token, String repoUrl) throws IOException {
+        this(token, repoUrl, new Http2GitHubConnector());
+    }
+
+    /**
+     * Connect to a repository through the given connector
+     * @param token GitHub token, or null for anonymous access
+     * @param connector Connector used for all GitHub API requests
+     */
+    public GitHubClient(String token, String repoUrl, GitHubConnector connector) throws IOException {
         // Parse the GitHub host from the URL
         String githubHost;
         String repoPath;
@@ -39,197 +65,749 @@ public class GitHubClient {
         logger.debug("Connecting to GitHub repository at {}: {}", githubHost, repoPath);
         
         // Configure GitHub client based on host
-        if (githubHost.equals("github.com")) {
-            github = new GitHubBuilder().withOAuthToken(token).build();
-        } else {
+        callBudget = new BudgetedGitHubConnector(new TracingGitHubConnector(connector));
+        GitHubBuilder builder = new GitHubBuilder().withConnector(callBudget);
+        if (!githubHost.equals("github.com")) {
             // Enterprise GitHub instance
-            github = new GitHubBuilder()
-                .withEndpoint("https://" + githubHost + "/api/v3")
-                .withOAuthToken(token)
-                .build();
+            builder.withEndpoint("https://" + githubHost + "/api/v3");
+        }
+        // No token is needed when the connector replays recorded responses
+        if (token != null) {
+            builder.withOAuthToken(token);
         }
+        github = builder.build();
         
         repository = github.getRepository(repoPath);
         logger.debug("Successfully connected to repository");
     }
 
+    /**
+     * Stop the analysis cleanly, keeping the results found so far, once this many API calls have been made
+     */
+    public void setMaxApiCalls(int maxApiCalls) {
+        callBudget.setMaxCalls(maxApiCalls);
+    }
+
+    public int getApiCallCount() {
+        return callBudget.getCallCount();
+    }
+
+    /**
+     * Whether the API call budget ran out, meaning the last analysis returned partial results
+     */
+    public boolean isApiBudgetExhausted() {
+        return callBudget.isExhausted();
+    }
+
+    /**
+     * Set how many commits are resolved to pull requests at the same time; 1 resolves them one by one
+     * after commit collection has finished
+     */
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * Use a commit graph to decide which commits belong to a release instead of the compare API
+     * @param commitGraph The commit graph to query and extend
+     * @param localClone Local clone to extend the graph from before falling back to the API, or null
+     */
+    public void setCommitGraph(CommitGraph commitGraph, Path localClone) {
+        this.commitGraph = commitGraph;
+        this.localClone = localClone;
+    }
+
     /**
      * Get pull requests between two tags
      */
     public List<PullRequest> getPullRequestsBetweenTags(String fromTag, String toTag) throws IOException {
-        List<PullRequest> pullRequests = new ArrayList<>();
-        Set<String> processedPRs = new HashSet<>();
-        Set<String> processedCommits = new HashSet<>();
+        return getPullRequestsBetweenTags(fromTag, toTag, new AnalysisOptions());
+    }
+
+    /**
+     * Get pull requests between two tags with the given journal, sampler and timings.
+     *
+     * Unless sampling, commits are resolved to PRs by a pool of workers while they are still being
+     * collected. Collection hands commits to the workers through a bounded queue and waits when the
+     * workers fall behind.
+     */
+    public List<PullRequest> getPullRequestsBetweenTags(String fromTag, String toTag, AnalysisOptions options) throws IOException {
+        ProgressJournal journal = options.getJournal();
+        LeadTimeSampler sampler = options.getSampler();
+        StageTimings timings = options.getTimings();
+        List<PullRequest> pullRequests = Collections.synchronizedList(new ArrayList<>());
+        Set<String> processedPRs = ConcurrentHashMap.newKeySet();
         List<String> commitsToProcess = new ArrayList<>();
         
         try {
-            logger.info("Comparing tags {} to {}", fromTag, toTag);
             long startTime = System.currentTimeMillis();
-            
-            // Get the comparison between tags
-            GHCompare compare = repository.getCompare(fromTag, toTag);
-            
-            // First collect all commits we need to process
-            logger.info("Found {} commits between tags, collecting branch commits...", compare.getCommits().length);
-            for (GHCommit commit : compare.getCommits()) {
-                logger.info("Fetching commit {}", commit.getSHA1());
-                if (processedCommits.contains(commit.getSHA1())) {
-                    continue;
+            if (sampler != null) {
+                sampler.start();
+            }
+            if (journal != null) {
+                for (PullRequest pr : journal.getPullRequests()) {
+                    processedPRs.add(String.valueOf(pr.getNumber()));
+                    pullRequests.add(pr);
                 }
-                processCommitAndParents(commit, fromTag, processedCommits, commitsToProcess, 0, 3);
             }
-            
-            long commitCollectionTime = System.currentTimeMillis();
-            logger.info("Collected {} unique commits in {}", commitsToProcess.size(), formatDuration(commitCollectionTime - startTime));
-            
-            // Now find PRs for all commits in one pass
-            findPullRequestsForCommits(commitsToProcess, processedPRs, pullRequests);
-            
-            long endTime = System.currentTimeMillis();
+
+            if (sampler != null || workers <= 1) {
+                // Sampling picks commits from the whole range, so it needs every commit before it can start
+                StageTimings.Stage collectionStage = timings.begin("commit-collection", toTag);
+                collectCommits(fromTag, toTag, journal, commitsToProcess, commitSha -> { }, sampler == null);
+                collectionStage.finish();
+                logger.info("Collected {} unique commits in {}", commitsToProcess.size(),
+                    formatDuration(System.currentTimeMillis() - startTime));
+
+                StageTimings.Stage resolutionStage = timings.begin("pr-resolution", toTag);
+                findPullRequestsForCommits(commitsToProcess, processedPRs, pullRequests, journal, sampler);
+                resolutionStage.finish();
+            } else {
+                new ResolutionPipeline(processedPRs, pullRequests, journal)
+                    .run(fromTag, toTag, commitsToProcess, timings);
+            }
+
+            Map<String, Duration> durations = timings.getDurations();
             logger.info("Total processing time: {} (commit collection: {}, PR matching: {})", 
-                       formatDuration(endTime - startTime),
-                       formatDuration(commitCollectionTime - startTime),
-                       formatDuration(endTime - commitCollectionTime));
+                       formatDuration(System.currentTimeMillis() - startTime),
+                       formatDuration(durations.get("commit-collection").toMillis()),
+                       formatDuration(durations.get("pr-resolution").toMillis()));
             
-            return pullRequests;
+            return new ArrayList<>(pullRequests);
             
         } catch (GHFileNotFoundException e) {
             throw new IOException("Could not compare tags. Please ensure both tags exist and are accessible.", e);
         } catch (Exception e) {
+            if (callBudget.isExhausted()) {
+                logger.warn("API call budget of {} calls reached, returning the {} pull requests found so far",
+                    callBudget.getMaxCalls(), pullRequests.size());
+                return new ArrayList<>(pullRequests);
+            }
             throw new IOException("Error retrieving pull requests between tags: " + e.getMessage(), e);
         }
     }
-    
+
     /**
-     * Find pull requests associated with a list of commits using the GitHub API
+     * Collect the commits of a release from the journal, the commit graph or the compare API
+     * @param commitsToProcess List the collected commits are added to
+     * @param sink Receives each commit as soon as it is collected
+     * @param walkParents Whether to also walk the parents of the compared commits, or take only the
+     *                    compared range when it is enough, as for sampling
      */
-    private void findPullRequestsForCommits(List<String> commits, Set<String> processedPRs, List<PullRequest> pullRequests) throws IOException {
-        logger.info("Finding PRs for {} commits", commits.size());
-        long startTime = System.currentTimeMillis();
-        int prCount = 0;
-        int skippedCommits = 0;
-        
-        for (String commitSha : commits) {
-            logger.debug("Checking for PRs associated with commit {}", commitSha);
-            try {
-                GHCommit commit = repository.getCommit(commitSha);
-                List<GHPullRequest> prs = commit.listPullRequests().toList();
-                if (prs == null || prs.isEmpty()) {
-                    logger.debug("No PRs found for commit {}", commitSha);
+    private void collectCommits(String fromTag, String toTag, ProgressJournal journal,
+                                List<String> commitsToProcess, CommitSink sink, boolean walkParents) throws IOException {
+        List<String> graphCommits;
+        if (journal != null && journal.isCollectionComplete()) {
+            logger.info("Using {} commits collected by a previous run", journal.getVisitedCommits().size());
+            for (String commitSha : journal.getVisitedCommits()) {
+                commitsToProcess.add(commitSha);
+                sink.accept(commitSha);
+            }
+        } else if (commitGraph != null && (graphCommits = collectCommitsFromGraph(fromTag, toTag, true)) != null) {
+            if (journal != null) {
+                journal.recordCollectedCommits(graphCommits);
+            }
+            for (String commitSha : graphCommits) {
+                commitsToProcess.add(commitSha);
+                sink.accept(commitSha);
+            }
+        } else {
+            logger.info("Comparing tags {} to {}", fromTag, toTag);
+
+            // Get the comparison between tags
+            GHCompare.Commit[] comparedCommits = compareCommits(fromTag, toTag);
+            Set<String> processedCommits = new HashSet<>();
+            CommitSink collector = commitSha -> {
+                commitsToProcess.add(commitSha);
+                sink.accept(commitSha);
+            };
+
+            if (!walkParents) {
+                // Every PR merged into the release has its merge commit in the compared range. The range
+                // is not journaled as a finished collection, so a full run later still walks the parents.
+                logger.info("Found {} commits between tags", comparedCommits.length);
+                for (GHCommit commit : comparedCommits) {
+                    collector.accept(commit.getSHA1());
+                }
+                return;
+            }
+
+            // Parents of the compared commits come with the comparison, and those of commits visited
+            // by an interrupted run come from its journal, so only the rest of the walk calls the API
+            Map<String, List<String>> knownParents = new HashMap<>();
+            if (journal != null) {
+                knownParents.putAll(journal.getVisitedParents());
+                if (!knownParents.isEmpty()) {
+                    logger.info("Reusing {} commits visited by a previous run", knownParents.size());
+                }
+            }
+            for (GHCommit commit : comparedCommits) {
+                knownParents.put(commit.getSHA1(), commit.getParentSHA1s());
+            }
+
+            // First collect all commits we need to process
+            logger.info("Found {} commits between tags, collecting branch commits...", comparedCommits.length);
+            for (GHCommit commit : comparedCommits) {
+                if (callBudget.isExhausted()) {
+                    logger.warn("API call budget reached while collecting commits, continuing with {} commits", commitsToProcess.size());
+                    break;
+                }
+                logger.info("Collecting commit {}", commit.getSHA1());
+                if (processedCommits.contains(commit.getSHA1())) {
                     continue;
                 }
-                for (GHPullRequest pr : prs) {
-                    if (!pr.isMerged() || processedPRs.contains(String.valueOf(pr.getNumber()))) {
-                        logger.debug("PR #{} is not merged or already processed, skipping", pr.getNumber());
-                        continue;
+                processCommitAndParents(commit.getSHA1(), knownParents, processedCommits, collector, journal, 0, 3);
+            }
+
+            // A collection cut short by the call budget is continued from its visited commits when resuming
+            if (journal != null && !callBudget.isExhausted()) {
+                journal.recordCollectedCommits(commitsToProcess);
+            }
+        }
+    }
+
+    /**
+     * Get every commit between two tags from the compare API. A single comparison lists at most 250
+     * commits, so a larger range is listed again page by page.
+     */
+    private GHCompare.Commit[] compareCommits(String fromTag, String toTag) throws IOException {
+        GHCompare compare = repository.getCompare(fromTag, toTag);
+        GHCompare.Commit[] commits = compare.getCommits();
+        if (commits.length < compare.getTotalCommits()) {
+            logger.info("Comparison lists {} of {} commits, listing all of them page by page",
+                commits.length, compare.getTotalCommits());
+            repository.setCompareUsePaginatedCommits(true);
+            try {
+                commits = repository.getCompare(fromTag, toTag).getCommits();
+            } finally {
+                repository.setCompareUsePaginatedCommits(false);
+            }
+        }
+        return commits;
+    }
+
+    /**
+     * Estimate the API calls needed to analyze a release, after collecting the commits in the range
+     * but before resolving any of them
+     * @param journal Journal of a previous run whose progress will be reused, or null
+     * @param sampleSize Number of commits a sampled run resolves, or 0 to plan for resolving every commit
+     */
+    public ApiCostPlan planPullRequestsBetweenTags(String fromTag, String toTag, ProgressJournal journal,
+                                                   int sampleSize) throws IOException {
+        List<String> commits;
+        int mergeCommits = -1;
+        int graphCalls = 0;
+        int traversalCalls = 0;
+        int visitedCommits;
+
+        if (journal != null && journal.isCollectionComplete()) {
+            commits = journal.getVisitedCommits();
+            visitedCommits = commits.size();
+        } else if (commitGraph != null && (commits = collectCommitsFromGraph(fromTag, toTag, false)) != null) {
+            mergeCommits = (int) commits.stream().filter(sha -> commitGraph.getParentCount(sha) > 1).count();
+            visitedCommits = commits.size();
+        } else {
+            // The run lists the same commits, so listing all of them here costs no more than it will
+            GHCompare.Commit[] comparedCommits = compareCommits(fromTag, toTag);
+            commits = new ArrayList<>();
+            mergeCommits = 0;
+            for (GHCommit commit : comparedCommits) {
+                commits.add(commit.getSHA1());
+                if (commit.getParentSHA1s().size() > 1) {
+                    mergeCommits++;
+                }
+            }
+            Set<String> inRange = new HashSet<>(commits);
+            Set<String> outsideParents = new HashSet<>();
+            for (GHCommit commit : comparedCommits) {
+                for (String parent : commit.getParentSHA1s()) {
+                    if (!inRange.contains(parent)) {
+                        outsideParents.add(parent);
                     }
-                    
-                    processedPRs.add(String.valueOf(pr.getNumber()));
-                    pullRequests.add(createPullRequest(pr));
-                    prCount++;
-                    logger.debug("Found PR #{} associated with commit {} ({})", 
-                        pr.getNumber(), commitSha.substring(0, 8), pr.getTitle());
                 }
-            } catch (GHFileNotFoundException e) {
-                // Commit might not exist or be accessible
-                logger.warn("Could not find commit {} - commit may have been deleted: {}", commitSha, e.getMessage());
-                skippedCommits++;
-            } catch (IOException e) {
-                // Other API errors
-                logger.warn("Error processing commit {} - skipping: {}", commitSha, e.getMessage());
-                skippedCommits++;
+            }
+
+            // Parents inside the range come with the comparison. The walk fetches each parent below the
+            // range and one more commit down from it, unless an interrupted run journaled them already.
+            // A sampled run takes only the compared range and does not walk at all, and neither does a run
+            // that can take the range from the commit graph once the graph has been extended.
+            boolean walkParents = sampleSize == 0 && commitGraph == null;
+            if (commitGraph != null) {
+                // Planning does not extend the graph itself, so count the most the run may spend on it
+                graphCalls = MAX_GRAPH_EXTENSION_COMMITS / CommitGraph.API_PAGE_SIZE;
+            }
+            Map<String, List<String>> journaledParents = journal == null ? Map.of() : journal.getVisitedParents();
+            for (String parent : walkParents ? outsideParents : Set.<String>of()) {
+                List<String> grandparents = journaledParents.get(parent);
+                if (grandparents == null) {
+                    traversalCalls += 2;
+                } else if (!grandparents.isEmpty() && !journaledParents.containsKey(grandparents.get(0))) {
+                    traversalCalls++;
+                }
+            }
+            visitedCommits = commits.size() + (walkParents ? 2 * outsideParents.size() : 0);
+        }
+
+        int cachedCommits = 0;
+        if (journal != null) {
+            for (String sha : commits) {
+                if (journal.isCommitResolved(sha)) {
+                    cachedCommits++;
+                }
+            }
+        }
+        int commitsToResolve = Math.max(0, visitedCommits - cachedCommits);
+        if (sampleSize > 0) {
+            commitsToResolve = Math.min(commitsToResolve, sampleSize);
+        }
+
+        // Expect as many PRs per commit as the journal has seen so far, or one per merge commit
+        double prsPerCommit;
+        int resolvedInJournal = journal == null ? 0 : journal.getResolvedCommitCount();
+        if (resolvedInJournal > 0) {
+            prsPerCommit = journal.getPullRequests().size() / (double) resolvedInJournal;
+        } else if (mergeCommits > 0) {
+            prsPerCommit = mergeCommits / (double) commits.size();
+        } else {
+            prsPerCommit = 1.0;
+        }
+        // Each new merged PR is loaded once for its details. A sampled run also loads the PRs listed
+        // for a sampled commit that it did not merge, to find that out, so expect one per commit.
+        int hydrationCalls = (int) Math.ceil(commitsToResolve * prsPerCommit);
+        if (sampleSize > 0) {
+            hydrationCalls = Math.max(hydrationCalls, commitsToResolve);
+        }
+
+        GHRateLimit.Record rateLimit = github.getRateLimit().getCore();
+        return new ApiCostPlan(
+            commits.size(),
+            mergeCommits,
+            cachedCommits,
+            commitsToResolve,
+            callBudget.getCallCount(),
+            graphCalls,
+            traversalCalls,
+            // One call for the commit and one for its pull requests
+            commitsToResolve * 2,
+            hydrationCalls,
+            rateLimit.getRemaining(),
+            rateLimit.getLimit(),
+            rateLimit.getResetDate()
+        );
+    }
+    
+    /**
+     * Collect the commits in a release from the commit graph, extending it from the local clone
+     * or the GitHub API as needed
+     * @param extendFromApi Whether to list missing history through the API when the local clone cannot provide it
+     * @return The commits reachable from toTag but not from fromTag, or null if the graph could not answer
+     */
+    private List<String> collectCommitsFromGraph(String fromTag, String toTag, boolean extendFromApi) throws IOException {
+        long startTime = System.currentTimeMillis();
+        String fromSha = resolveCommitSha(fromTag);
+        String toSha = resolveCommitSha(toTag);
+
+        List<String> commits = commitGraph.commitsBetween(fromSha, toSha);
+        try {
+            if (commits == null && localClone != null) {
+                try {
+                    commitGraph.extendFromLocalClone(localClone, fromSha, toSha);
+                    commits = commitGraph.commitsBetween(fromSha, toSha);
+                } catch (IOException e) {
+                    logger.warn("Could not read history from local clone {}: {}", localClone, e.getMessage());
+                }
+            }
+            if (commits == null && extendFromApi) {
+                commits = commitGraph.extendFromApi(repository, fromSha, toSha, MAX_GRAPH_EXTENSION_COMMITS);
+            }
+        } finally {
+            // Keep the history fetched so far when the budget or the network cuts the extension short,
+            // so that a resumed run continues from it instead of paying for the same pages again
+            commitGraph.save();
+        }
+
+        if (commits == null && !extendFromApi) {
+            logger.info("Commit graph cannot resolve {}..{} without listing history from the API", fromTag, toTag);
+            return null;
+        } else if (commits == null) {
+            logger.warn("Commit graph could not resolve {}..{}, falling back to the compare API", fromTag, toTag);
+            return null;
+        }
+        logger.info("Commit graph found {} commits between {} and {} in {}",
+            commits.size(), fromTag, toTag, formatDuration(System.currentTimeMillis() - startTime));
+        return commits;
+    }
+
+    /**
+     * Resolve a tag name to the SHA of the commit it points to, following annotated tags. Each tag
+     * is looked up once: concurrent and later calls for the same tag wait for the first lookup.
+     */
+    public String resolveCommitSha(String tag) throws IOException {
+        String tagName = tag.replaceFirst("^refs/tags/", "");
+        CompletableFuture<String> lookup = new CompletableFuture<>();
+        CompletableFuture<String> existing = tagCommitShas.putIfAbsent(tagName, lookup);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        try {
+            GHRef ref = repository.getRef("tags/" + tagName);
+            String sha = ref.getObject().getSha();
+            if (ref.getObject().getType().equals("tag")) {
+                sha = repository.getTagObject(sha).getObject().getSha();
+            }
+            lookup.complete(sha);
+            return sha;
+        } catch (IOException | RuntimeException e) {
+            // Waiting calls fail with the same error, later ones try again
+            tagCommitShas.remove(tagName, lookup);
+            lookup.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Find pull requests associated with a list of commits using the GitHub API
+     */
+    private void findPullRequestsForCommits(List<String> commits, Set<String> processedPRs, List<PullRequest> pullRequests,
+                                            ProgressJournal journal, LeadTimeSampler sampler) throws IOException {
+        if (sampler != null) {
+            commits = sampler.order(commits);
+            logger.info("Sampling PRs from {} commits ({} sampling)", commits.size(), sampler.getStrategy());
+        } else {
+            logger.info("Finding PRs for {} commits", commits.size());
+        }
+        long startTime = System.currentTimeMillis();
+        ResolutionCounts counts = new ResolutionCounts();
+
+        for (String commitSha : commits) {
+            if (callBudget.isExhausted()) {
+                logger.warn("API call budget of {} calls reached, stopping PR lookup", callBudget.getMaxCalls());
+                break;
+            }
+            if (!resolveCommitOrSkip(commitSha, processedPRs, pullRequests, journal, sampler, counts)) {
+                break;
             }
         }
         
+        if (journal != null) {
+            journal.flush();
+        }
+
         long endTime = System.currentTimeMillis();
-        logger.info("Found {} PRs in {} ({} commits skipped)", 
-            prCount, formatDuration(endTime - startTime), skippedCommits);
+        logger.info("Found {} PRs in {} ({} commits skipped, {} commits resumed from journal)", 
+            counts.pullRequests.get(), formatDuration(endTime - startTime),
+            counts.skippedCommits.get(), counts.resumedCommits.get());
     }
-    
+
     /**
-     * Recursively collect commits from a source branch, with a limit on recursion depth
-     * @param commit The commit to start processing from
-     * @param stopAtTag The tag to stop processing at
-     * @param processedCommits Set of already processed commit SHAs
-     * @param commitsToProcess List to add new commit SHAs to
-     * @param currentDepth Current recursion depth
-     * @param maxDepth Maximum recursion depth to prevent infinite loops
+     * Resolve one commit for either resolution path. Commits the journal already resolved are skipped,
+     * and so are commits that cannot be found or fail with another API error, so that one bad commit
+     * does not end the analysis.
+     * @param sampler Sampler whose budget the commit is counted against, or null
+     * @return false once no more commits should be resolved, because the sample is complete or the
+     *         API call budget ran out
      */
-    private void processCommitAndParents(GHCommit commit, String stopAtTag, 
-                                    Set<String> processedCommits, List<String> commitsToProcess,
-                                    int currentDepth, int maxDepth) throws IOException {
+    private boolean resolveCommitOrSkip(String commitSha, Set<String> processedPRs, List<PullRequest> pullRequests,
+                                        ProgressJournal journal, LeadTimeSampler sampler, ResolutionCounts counts) {
+        if (journal != null && journal.isCommitResolved(commitSha)) {
+            counts.resumedCommits.incrementAndGet();
+            return true;
+        }
+        if (sampler != null) {
+            if (!sampler.hasBudget()) {
+                logger.info("Sampling budget reached after {} commits", sampler.getSampledCommits());
+                return false;
+            }
+            sampler.recordSampled();
+        }
         try {
-            // Stop if we've hit the recursion limit
-            if (currentDepth >= maxDepth) {
-                logger.debug("{} Reached maximum recursion depth ({}) at commit {}", 
-                    getDepthPrefix(currentDepth), maxDepth, commit.getSHA1());
-                return;
+            counts.pullRequests.addAndGet(resolveCommit(commitSha, processedPRs, pullRequests, journal, sampler));
+        } catch (GHFileNotFoundException e) {
+            // Commit might not exist or be accessible
+            logger.warn("Could not find commit {} - commit may have been deleted: {}", commitSha, e.getMessage());
+            counts.skippedCommits.incrementAndGet();
+        } catch (IOException e) {
+            if (callBudget.isExhausted()) {
+                return false;
             }
+            // Other API errors
+            logger.warn("Error processing commit {} - skipping: {}", commitSha, e.getMessage());
+            counts.skippedCommits.incrementAndGet();
+        }
+        return true;
+    }
 
-            // Stop if we've already processed this commit
-            if (processedCommits.contains(commit.getSHA1())) {
-                return;
+    /**
+     * Progress of PR resolution, updated from every thread that resolves commits
+     */
+    private static class ResolutionCounts {
+        private final AtomicInteger pullRequests = new AtomicInteger();
+        private final AtomicInteger skippedCommits = new AtomicInteger();
+        private final AtomicInteger resumedCommits = new AtomicInteger();
+    }
+
+    /**
+     * Look up the pull requests of a commit and add the merged ones not seen before. Safe to call
+     * from several threads when processedPRs and pullRequests are thread-safe.
+     * @return The number of pull requests added
+     */
+    private int resolveCommit(String commitSha, Set<String> processedPRs, List<PullRequest> pullRequests,
+                              ProgressJournal journal, LeadTimeSampler sampler) throws IOException {
+        logger.debug("Checking for PRs associated with commit {}", commitSha);
+        TraceEvents.PullRequestResolution resolution = new TraceEvents.PullRequestResolution();
+        resolution.begin();
+        GHCommit commit = repository.getCommit(commitSha);
+        List<GHPullRequest> prs = commit.listPullRequests().toList();
+        List<Integer> mergedPrNumbers = new ArrayList<>();
+        if (prs == null || prs.isEmpty()) {
+            logger.debug("No PRs found for commit {}", commitSha);
+            prs = Collections.emptyList();
+        }
+        for (GHPullRequest pr : prs) {
+            String number = String.valueOf(pr.getNumber());
+            // Checked on the listed fields first: isMerged() would load the full PR for every listing
+            if (processedPRs.contains(number) || pr.getMergedAt() == null) {
+                logger.debug("PR #{} is not merged or already processed, skipping", pr.getNumber());
+                continue;
+            }
+            if (sampler != null && !commitSha.equals(pr.getMergeCommitSha())) {
+                // Only count a PR when its own merge commit was sampled, so PRs with many commits are not favoured
+                logger.debug("PR #{} was not merged by sampled commit {}, skipping", pr.getNumber(), commitSha.substring(0, 8));
+                continue;
+            }
+            // Claim the PR before loading its details, so that concurrent lookups never add it twice
+            if (!processedPRs.add(number)) {
+                continue;
             }
 
-            processedCommits.add(commit.getSHA1());
-            commitsToProcess.add(commit.getSHA1());
-            
-            // Get parents
-            List<GHCommit> parents;
+            PullRequest pullRequest;
             try {
-                parents = commit.getParents();
-            } catch (GHFileNotFoundException e) {
-                logger.warn("{} Could not fetch parents for commit {} - commit may have been deleted: {}", 
-                    getDepthPrefix(currentDepth), commit.getSHA1(), e.getMessage());
-                return;
+                pullRequest = createPullRequest(pr);
+            } catch (IOException e) {
+                processedPRs.remove(number);
+                throw e;
             }
-            
-            if (parents.isEmpty()) {
-                return;
+            pullRequests.add(pullRequest);
+            mergedPrNumbers.add(pr.getNumber());
+            if (journal != null) {
+                journal.recordPullRequest(pullRequest);
             }
+            logger.debug("Found PR #{} associated with commit {} ({})", 
+                pr.getNumber(), commitSha.substring(0, 8), pr.getTitle());
+        }
+        if (journal != null) {
+            journal.recordCommitResolved(commitSha, mergedPrNumbers);
+        }
+        resolution.end();
+        if (resolution.shouldCommit()) {
+            resolution.sha = commitSha;
+            resolution.pullRequests = prs.size();
+            resolution.mergedPullRequests = mergedPrNumbers.size();
+            resolution.commit();
+        }
+        return mergedPrNumbers.size();
+    }
+
+    /**
+     * Receives each commit as soon as commit collection finds it
+     */
+    private interface CommitSink {
+        void accept(String commitSha) throws IOException;
+    }
+
+    /**
+     * Resolves commits to pull requests on a pool of workers while commit collection is still running.
+     * Collection puts commits on a bounded queue and blocks when it is full, so a fast traversal
+     * cannot run far ahead of the slower PR lookups.
+     */
+    private class ResolutionPipeline {
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(PIPELINE_QUEUE_CAPACITY);
+        private final Set<String> processedPRs;
+        private final List<PullRequest> pullRequests;
+        private final ProgressJournal journal;
+        private final ResolutionCounts counts = new ResolutionCounts();
+
+        ResolutionPipeline(Set<String> processedPRs, List<PullRequest> pullRequests, ProgressJournal journal) {
+            this.processedPRs = processedPRs;
+            this.pullRequests = pullRequests;
+            this.journal = journal;
+        }
+
+        void run(String fromTag, String toTag, List<String> commitsToProcess, StageTimings timings) throws IOException {
+            long startTime = System.currentTimeMillis();
+            logger.info("Finding PRs with {} workers while collecting commits", workers);
+            AtomicInteger threadCount = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+                Thread thread = new Thread(runnable, "lt4c-pr-resolver-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            StageTimings.Stage resolutionStage = timings.begin("pr-resolution", toTag);
+            try {
+                List<Future<Void>> results = new ArrayList<>();
+                for (int i = 0; i < workers; i++) {
+                    results.add(executor.submit(this::resolveQueuedCommits));
+                }
 
-            // For merge commits, recursively process the source branch (second parent)
-            if (parents.size() > 1) {
-                GHCommit sourceBranchCommit;
+                StageTimings.Stage collectionStage = timings.begin("commit-collection", toTag);
+                IOException collectionError = null;
                 try {
-                    sourceBranchCommit = parents.get(1);
-                    
-                    if (logger.isDebugEnabled()) {
-                        // Try to get branch name from associated PR
-                        List<GHPullRequest> prs = sourceBranchCommit.listPullRequests().toList();
-                        String branchInfo = prs.isEmpty() ? "unknown branch" : 
-                            String.format("branch '%s' (PR #%d)", prs.get(0).getHead().getRef(), prs.get(0).getNumber());
-                        logger.debug("{} Processing commit {} from {} (depth: {})", 
-                            getDepthPrefix(currentDepth), sourceBranchCommit.getSHA1().substring(0, 8), 
-                            branchInfo, currentDepth);
-                    }
-                    
-                    if (!processedCommits.contains(sourceBranchCommit.getSHA1())) {
-                        processCommitAndParents(sourceBranchCommit, stopAtTag, 
-                            processedCommits, commitsToProcess, currentDepth + 1, maxDepth);
-                    }
-                } catch (GHFileNotFoundException e) {
-                    logger.warn("{} Could not fetch source branch commit {} - commit may have been deleted: {}", 
-                        getDepthPrefix(currentDepth), parents.get(1).getSHA1(), e.getMessage());
+                    collectCommits(fromTag, toTag, journal, commitsToProcess, this::enqueue, true);
+                } catch (IOException e) {
+                    // Let the workers finish what was collected before reporting the error
+                    collectionError = e;
+                }
+                collectionStage.finish();
+                logger.info("Collected {} unique commits in {}", commitsToProcess.size(),
+                    formatDuration(System.currentTimeMillis() - startTime));
+                for (int i = 0; i < workers; i++) {
+                    enqueue(END_OF_COMMITS);
+                }
+
+                for (Future<Void> result : results) {
+                    result.get();
+                }
+                if (collectionError != null) {
+                    throw collectionError;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while resolving pull requests");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("PR resolution failed: " + e.getCause().getMessage(), e.getCause());
+            } finally {
+                executor.shutdownNow();
+                resolutionStage.finish();
+                if (journal != null) {
+                    journal.flush();
                 }
             }
-            
-            // Continue with the first parent (main branch line)
+
+            logger.info("Found {} PRs in {} ({} commits skipped, {} commits resumed from journal)", 
+                counts.pullRequests.get(), formatDuration(System.currentTimeMillis() - startTime),
+                counts.skippedCommits.get(), counts.resumedCommits.get());
+        }
+
+        private void enqueue(String commitSha) throws IOException {
             try {
-                GHCommit parentCommit = parents.get(0);
-                if (!processedCommits.contains(parentCommit.getSHA1())) {
-                    processCommitAndParents(parentCommit, stopAtTag, 
-                        processedCommits, commitsToProcess, currentDepth + 1, maxDepth);
+                queue.put(commitSha);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while queueing commit " + commitSha);
+            }
+        }
+
+        /**
+         * Worker loop. Workers keep taking commits until the end marker even after the call budget runs
+         * out, so that collection never blocks on a full queue.
+         */
+        private Void resolveQueuedCommits() throws Exception {
+            Exception failure = null;
+            String commitSha;
+            while (!(commitSha = queue.take()).equals(END_OF_COMMITS)) {
+                if (failure != null || callBudget.isExhausted()) {
+                    continue;
+                }
+                try {
+                    resolveCommitOrSkip(commitSha, processedPRs, pullRequests, journal, null, counts);
+                } catch (RuntimeException e) {
+                    failure = e;
                 }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * Recursively collect commits from a source branch, with a limit on recursion depth.
+     * Parents already known from the compare response or the journal are used as they are, so only
+     * commits outside both cost an API call, and each newly fetched commit is journaled.
+     * @param commitSha The commit to start processing from
+     * @param knownParents Parent SHAs of the commits seen so far, extended as commits are fetched
+     * @param processedCommits Set of already processed commit SHAs
+     * @param collector Receives the SHA of each newly collected commit
+     * @param journal Journal to record visited commits to, or null
+     * @param currentDepth Current recursion depth
+     * @param maxDepth Maximum recursion depth to prevent infinite loops
+     */
+    private void processCommitAndParents(String commitSha, Map<String, List<String>> knownParents,
+                                    Set<String> processedCommits, CommitSink collector, ProgressJournal journal,
+                                    int currentDepth, int maxDepth) throws IOException {
+        // Stop if we've hit the recursion limit
+        if (currentDepth >= maxDepth) {
+            logger.debug("{} Reached maximum recursion depth ({}) at commit {}", 
+                getDepthPrefix(currentDepth), maxDepth, commitSha);
+            return;
+        }
+
+        // Stop if we've already processed this commit
+        if (processedCommits.contains(commitSha)) {
+            return;
+        }
+
+        processedCommits.add(commitSha);
+        collector.accept(commitSha);
+        
+        // Get parents
+        TraceEvents.CommitVisit visit = new TraceEvents.CommitVisit();
+        visit.begin();
+        List<String> parents = knownParents.get(commitSha);
+        if (parents == null) {
+            try {
+                parents = repository.getCommit(commitSha).getParentSHA1s();
             } catch (GHFileNotFoundException e) {
-                logger.warn("{} Could not fetch parent commit {} - commit may have been deleted: {}", 
-                    getDepthPrefix(currentDepth), parents.get(0).getSHA1(), e.getMessage());
+                // Stop processing if we can't find the commit (likely hit the repository boundary)
+                logger.warn("{} Could not fetch commit {} - commit may have been deleted: {}", 
+                    getDepthPrefix(currentDepth), commitSha, e.getMessage());
+                parents = Collections.emptyList();
             }
-        } catch (GHFileNotFoundException e) {
-            // Stop processing if we can't find the commit (likely hit the repository boundary)
-            logger.warn("{} Could not fetch commit {} - commit may have been deleted: {}", 
-                getDepthPrefix(currentDepth), commit.getSHA1(), e.getMessage());
+            knownParents.put(commitSha, parents);
+        }
+        if (journal != null && !journal.isCommitVisited(commitSha)) {
+            journal.recordVisitedCommit(commitSha, parents);
         }
+        visit.end();
+        if (visit.shouldCommit()) {
+            visit.sha = commitSha;
+            visit.depth = currentDepth;
+            visit.parentCount = parents.size();
+            visit.commit();
+        }
+        
+        if (parents.isEmpty()) {
+            return;
+        }
+
+        // For merge commits, recursively process the source branch (second parent)
+        if (parents.size() > 1) {
+            String sourceBranchCommit = parents.get(1);
+            if (logger.isDebugEnabled()) {
+                logger.debug("{} Processing source branch commit {} of merge {} (depth: {})", 
+                    getDepthPrefix(currentDepth), sourceBranchCommit.substring(0, 8), 
+                    commitSha.substring(0, 8), currentDepth);
+            }
+            processCommitAndParents(sourceBranchCommit, knownParents,
+                processedCommits, collector, journal, currentDepth + 1, maxDepth);
+        }
+        
+        // Continue with the first parent (main branch line)
+        processCommitAndParents(parents.get(0), knownParents,
+            processedCommits, collector, journal, currentDepth + 1, maxDepth);
     }
 
     /**
@@ -0,0 +1,158 @@
+package org.devmetrics.lt4c;
+
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GitHub connector built on java.net.http. A single client is shared by all requests, so
+ * connections are kept alive and pooled, and concurrent requests to the same host are multiplexed
+ * over HTTP/2. Responses are requested gzip-compressed, and idempotent requests are retried on
+ * timeouts and gateway errors. Other connection failures are left to github-api, which retries
+ * them itself.
+ */
+public class Http2GitHubConnector implements GitHubConnector {
+    private static final Logger logger = LoggerFactory.getLogger(Http2GitHubConnector.class);
+
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(60);
+    public static final int DEFAULT_MAX_RETRIES = 2;
+
+    private static final long RETRY_BACKOFF_MS = 250;
+    // Headers that java.net.http manages itself and refuses to have set on a request
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "PUT", "DELETE", "OPTIONS");
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(502, 503, 504);
+
+    private final HttpClient client;
+    private final Duration readTimeout;
+    private final int maxRetries;
+
+    public Http2GitHubConnector() {
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_MAX_RETRIES);
+    }
+
+    /**
+     * @param connectTimeout Timeout for establishing a connection
+     * @param readTimeout Timeout for receiving the response headers of a request
+     * @param maxRetries Number of times an idempotent request is retried after a timeout or gateway error
+     */
+    public Http2GitHubConnector(Duration connectTimeout, Duration readTimeout, int maxRetries) {
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(connectTimeout)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+        this.readTimeout = readTimeout;
+        this.maxRetries = maxRetries;
+    }
+
+    @Override
+    public GitHubConnectorResponse send(GitHubConnectorRequest request) throws IOException {
+        HttpRequest httpRequest = buildRequest(request);
+        boolean retryable = IDEMPOTENT_METHODS.contains(request.method());
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                HttpResponse<InputStream> response = client.send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+                if (retryable && attempt < maxRetries && RETRYABLE_STATUSES.contains(response.statusCode())) {
+                    logger.debug("{} {} returned {}, retrying (attempt {} of {})",
+                        request.method(), request.url(), response.statusCode(), attempt + 1, maxRetries);
+                    response.body().close();
+                    backOff(attempt);
+                    continue;
+                }
+                return new Http2Response(request, response);
+            } catch (HttpTimeoutException e) {
+                if (!retryable || attempt >= maxRetries) {
+                    throw e;
+                }
+                logger.debug("{} {} failed: {}, retrying (attempt {} of {})",
+                    request.method(), request.url(), e.getMessage(), attempt + 1, maxRetries);
+                backOff(attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while calling " + request.url(), e);
+            }
+        }
+    }
+
+    private HttpRequest buildRequest(GitHubConnectorRequest request) throws IOException {
+        HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(request.url().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid GitHub API URL: " + request.url(), e);
+        }
+        builder.timeout(readTimeout);
+
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.noBody();
+        if (request.hasBody()) {
+            // Read the body once so that the request can be retried
+            try (InputStream in = request.body()) {
+                body = HttpRequest.BodyPublishers.ofByteArray(in.readAllBytes());
+            }
+        }
+        builder.method(request.method(), body);
+
+        for (Map.Entry<String, List<String>> header : request.allHeaders().entrySet()) {
+            if (header.getKey() == null || RESTRICTED_HEADERS.contains(header.getKey().toLowerCase())) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                builder.header(header.getKey(), value);
+            }
+        }
+        if (request.header("Accept-Encoding") == null) {
+            builder.header("Accept-Encoding", "gzip");
+        }
+        return builder.build();
+    }
+
+    private void backOff(int attempt) throws IOException {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MS << attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    /**
+     * Response backed by a java.net.http response; the body is decompressed by the base class
+     */
+    private static class Http2Response extends GitHubConnectorResponse.ByteArrayResponse {
+        private final HttpResponse<InputStream> response;
+
+        Http2Response(GitHubConnectorRequest request, HttpResponse<InputStream> response) {
+            super(request, response.statusCode(), response.headers().map());
+            this.response = response;
+        }
+
+        @Override
+        protected InputStream rawBodyStream() {
+            return response.body();
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            // Release the connection even if the body was never read
+            response.body().close();
+        }
+    }
+}
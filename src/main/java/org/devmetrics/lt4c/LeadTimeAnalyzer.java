@@ -1,95 +1,187 @@
 package org.devmetrics.lt4c;
 
-import org.kohsuke.github.GHRef;
 import org.kohsuke.github.GHCommit;
 import org.kohsuke.github.GHFileNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class LeadTimeAnalyzer {
     private static final Logger logger = LoggerFactory.getLogger(LeadTimeAnalyzer.class);
     private final GitHubClient githubClient;
+    private ReleaseAttribution releaseAttribution;
+    private LeadTimeSampler sampler;
 
     public LeadTimeAnalyzer(GitHubClient githubClient) {
         this.githubClient = githubClient;
     }
 
+    /**
+     * Estimate lead times from a sample of the release's commits instead of resolving every commit
+     */
+    public void setSampler(LeadTimeSampler sampler) {
+        this.sampler = sampler;
+    }
+
+    /**
+     * Measure each PR against the first release that contains it instead of the analyzed release
+     */
+    public void setReleaseAttribution(ReleaseAttribution releaseAttribution) {
+        this.releaseAttribution = releaseAttribution;
+    }
+
     public ReleaseAnalysis analyzeRelease(String releaseRef, String previousReleaseRef) throws Exception {
+        return analyzeRelease(releaseRef, previousReleaseRef, null);
+    }
+
+    /**
+     * Analyze a release, resuming from and recording progress to the given journal.
+     *
+     * The two release tags are resolved in the background while the commits of the release are
+     * collected and resolved to pull requests, since neither needs the other's result.
+     * @param journal Progress journal for the release range, or null to run without one
+     */
+    public ReleaseAnalysis analyzeRelease(String releaseRef, String previousReleaseRef, ProgressJournal journal) throws Exception {
         logger.info("Analyzing release from {} to {}", previousReleaseRef, releaseRef);
-        
-        // Get tag dates from GitHub
-        GHRef releaseTag;
-        GHRef previousReleaseTag;
-        try {
-            releaseTag = githubClient.getRepository().getRef("tags/" + releaseRef.replaceFirst("^refs/tags/", ""));
-            previousReleaseTag = githubClient.getRepository().getRef("tags/" + previousReleaseRef.replaceFirst("^refs/tags/", ""));
-        } catch (GHFileNotFoundException e) {
-            throw new IOException("Could not find one or both tags. Please ensure both tags exist: " + e.getMessage(), e);
-        }
-        
-        // For annotated tags, we need to get the tag object first, which points to the commit
-        // For lightweight tags, the object directly points to the commit
-        GHCommit releaseCommit;
-        GHCommit previousReleaseCommit;
+        StageTimings timings = new StageTimings();
+        ExecutorService tagExecutor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "lt4c-tag-resolver");
+            thread.setDaemon(true);
+            return thread;
+        });
+
         try {
-            String releaseSha = releaseTag.getObject().getSha();
-            String previousReleaseSha = previousReleaseTag.getObject().getSha();
-            
-            // If this is an annotated tag, get the commit it points to
-            if (releaseTag.getObject().getType().equals("tag")) {
-                releaseSha = githubClient.getRepository().getTagObject(releaseSha).getObject().getSha();
+            // Get tag dates from GitHub
+            StageTimings.Stage tagStage = timings.begin("tag-resolution", releaseRef);
+            CompletableFuture<GHCommit> releaseCommitFuture = resolveReleaseCommit(releaseRef, tagExecutor);
+            CompletableFuture<GHCommit> previousReleaseCommitFuture = resolveReleaseCommit(previousReleaseRef, tagExecutor);
+            CompletableFuture.allOf(releaseCommitFuture, previousReleaseCommitFuture)
+                .whenComplete((ignored, error) -> tagStage.finish());
+
+            List<PullRequest> pullRequests;
+            try {
+                pullRequests = githubClient.getPullRequestsBetweenTags(previousReleaseRef, releaseRef,
+                    new AnalysisOptions().journal(journal).sampler(sampler).timings(timings));
+            } catch (IOException e) {
+                // A missing tag also makes the comparison fail; report the clearer tag error instead
+                join(releaseCommitFuture);
+                join(previousReleaseCommitFuture);
+                throw e;
+            }
+            logger.info("Found {} pull requests", pullRequests.size());
+
+            GHCommit releaseCommit = joinWithinBudget(releaseCommitFuture, releaseRef);
+            GHCommit previousReleaseCommit = joinWithinBudget(previousReleaseCommitFuture, previousReleaseRef);
+            Date releaseDate = releaseCommit == null ? null : releaseCommit.getCommitDate();
+            Date fromReleaseDate = previousReleaseCommit == null ? null : previousReleaseCommit.getCommitDate();
+            logger.debug("Release dates - from: {} to: {}", fromReleaseDate, releaseDate);
+
+            // Set release date on each PR for lead time calculation
+            for (PullRequest pr : pullRequests) {
+                pr.setRelease(releaseRef, releaseDate);
             }
-            if (previousReleaseTag.getObject().getType().equals("tag")) {
-                previousReleaseSha = githubClient.getRepository().getTagObject(previousReleaseSha).getObject().getSha();
+            if (releaseAttribution != null) {
+                int attributed = releaseAttribution.applyTo(pullRequests);
+                logger.info("Attributed {} of {} pull requests to their first containing release", attributed, pullRequests.size());
             }
-            
-            releaseCommit = githubClient.getRepository().getCommit(releaseSha);
-            previousReleaseCommit = githubClient.getRepository().getCommit(previousReleaseSha);
-        } catch (GHFileNotFoundException e) {
-            throw new IOException("Could not find commit for one or both tags. The commits may have been deleted or force-pushed: " + e.getMessage(), e);
+
+            StageTimings.Stage statisticsStage = timings.begin("statistics", releaseRef);
+
+            // Sort PRs by merge date
+            pullRequests.sort(Comparator.comparing(PullRequest::getMergedAt));
+
+            // Calculate lead times, leaving out PRs whose release date could not be resolved within the budget
+            double[] leadTimes = pullRequests.stream()
+                .filter(PullRequest::hasLeadTime)
+                .mapToDouble(PullRequest::getLeadTimeHours)
+                .toArray();
+
+            double averageLeadTime = calculateAverage(leadTimes);
+            double medianLeadTime = calculateMedian(leadTimes);
+            double p90LeadTime = calculatePercentile(leadTimes, 90);
+            SampleSummary sampleSummary = sampler == null ? null : SampleSummary.of(sampler, leadTimes);
+
+            logger.info("Lead time metrics - Average: {:.2f}h, Median: {:.2f}h, P90: {:.2f}h",
+                averageLeadTime, medianLeadTime, p90LeadTime);
+
+            statisticsStage.finish();
+            timings.finish();
+
+            return new ReleaseAnalysis(
+                releaseRef,
+                releaseCommit == null ? null : releaseCommit.getSHA1(),
+                releaseDate,
+                previousReleaseRef,
+                fromReleaseDate,
+                pullRequests,
+                averageLeadTime,
+                medianLeadTime,
+                p90LeadTime,
+                sampleSummary,
+                githubClient.isApiBudgetExhausted(),
+                timings
+            );
+        } finally {
+            tagExecutor.shutdownNow();
         }
-        
-        Date releaseDate = releaseCommit.getCommitDate();
-        Date fromReleaseDate = previousReleaseCommit.getCommitDate();
-        
-        logger.debug("Release dates - from: {} to: {}", fromReleaseDate, releaseDate);
-        
-        List<PullRequest> pullRequests = githubClient.getPullRequestsBetweenTags(previousReleaseRef, releaseRef);
-        logger.info("Found {} pull requests", pullRequests.size());
-
-        // Set release date on each PR for lead time calculation
-        for (PullRequest pr : pullRequests) {
-            pr.setReleaseDate(releaseDate);
+    }
+
+    /**
+     * Resolve a release tag to its commit in the background. The tag lookup is shared with commit
+     * collection, which needs the same commit SHA when it uses the commit graph.
+     */
+    private CompletableFuture<GHCommit> resolveReleaseCommit(String releaseRef, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            String sha;
+            try {
+                sha = githubClient.resolveCommitSha(releaseRef);
+            } catch (GHFileNotFoundException e) {
+                throw new CompletionException(new IOException(
+                    "Could not find one or both tags. Please ensure both tags exist: " + e.getMessage(), e));
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+
+            try {
+                return githubClient.getRepository().getCommit(sha);
+            } catch (GHFileNotFoundException e) {
+                throw new CompletionException(new IOException(
+                    "Could not find commit for one or both tags. The commits may have been deleted or force-pushed: " + e.getMessage(), e));
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Wait for a release commit, or return null if the API call budget refused one of its lookups,
+     * so that the analysis ends with a partial result instead of failing
+     */
+    private static GHCommit joinWithinBudget(CompletableFuture<GHCommit> future, String releaseRef) throws IOException {
+        try {
+            return join(future);
+        } catch (IOException e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof ApiBudgetExceededException) {
+                    logger.warn("API call budget reached before release {} was resolved, its date is unknown", releaseRef);
+                    return null;
+                }
+            }
+            throw e;
         }
+    }
 
-        // Sort PRs by merge date
-        pullRequests.sort(Comparator.comparing(PullRequest::getMergedAt));
-
-        // Calculate lead times
-        double[] leadTimes = pullRequests.stream()
-            .mapToDouble(PullRequest::getLeadTimeHours)
-            .toArray();
-
-        double averageLeadTime = calculateAverage(leadTimes);
-        double medianLeadTime = calculateMedian(leadTimes);
-        double p90LeadTime = calculatePercentile(leadTimes, 90);
-
-        logger.info("Lead time metrics - Average: {:.2f}h, Median: {:.2f}h, P90: {:.2f}h",
-            averageLeadTime, medianLeadTime, p90LeadTime);
-
-        return new ReleaseAnalysis(
-            releaseRef,
-            releaseCommit.getSHA1(),
-            releaseDate,
-            previousReleaseRef,
-            fromReleaseDate,
-            pullRequests,
-            averageLeadTime,
-            medianLeadTime,
-            p90LeadTime
-        );
+    private static GHCommit join(CompletableFuture<GHCommit> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
     }
 
     private double calculateAverage(double[] values) {
@@ -0,0 +1,108 @@
+package org.devmetrics.lt4c;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Chooses which commits of a release to resolve when estimating lead times from a sample.
+ *
+ * Commits are resolved in a random order, or round-robin across equal slices of the range when
+ * stratified, so that stopping early on the time budget still leaves a representative sample.
+ * Only pull requests whose merge commit was sampled are counted: every PR has exactly one merge
+ * commit, so each PR is sampled with the same probability regardless of how many commits it has.
+ */
+public class LeadTimeSampler {
+    public enum Strategy { RANDOM, STRATIFIED }
+
+    private static final int STRATA = 10;
+
+    private final int sampleSize;
+    private final Duration timeBudget;
+    private final Strategy strategy;
+    private final Random random;
+    private int populationCommits;
+    private int sampledCommits;
+    private long startTime;
+
+    /**
+     * @param sampleSize Maximum number of commits to resolve
+     * @param timeBudget Maximum time to spend collecting and resolving commits, or null for no limit
+     * @param strategy How to pick the commits
+     * @param seed Seed for the random choice, so that a sample can be reproduced
+     */
+    public LeadTimeSampler(int sampleSize, Duration timeBudget, Strategy strategy, long seed) {
+        this.sampleSize = sampleSize;
+        this.timeBudget = timeBudget;
+        this.strategy = strategy;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Start the time budget, before the commits of the release are collected
+     */
+    public void start() {
+        sampledCommits = 0;
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Put the commits of a release in the order they should be sampled
+     */
+    public List<String> order(List<String> commits) {
+        populationCommits = commits.size();
+
+        if (strategy == Strategy.RANDOM) {
+            List<String> shuffled = new ArrayList<>(commits);
+            Collections.shuffle(shuffled, random);
+            return shuffled;
+        }
+
+        // Shuffle within equal slices of the range and take one commit from each slice in turn
+        List<List<String>> strata = new ArrayList<>();
+        int strataCount = Math.max(1, Math.min(STRATA, commits.size()));
+        for (int i = 0; i < strataCount; i++) {
+            List<String> stratum = new ArrayList<>(commits.subList(
+                i * commits.size() / strataCount, (i + 1) * commits.size() / strataCount));
+            Collections.shuffle(stratum, random);
+            strata.add(stratum);
+        }
+        List<String> ordered = new ArrayList<>(commits.size());
+        for (int i = 0; ordered.size() < commits.size(); i++) {
+            for (List<String> stratum : strata) {
+                if (i < stratum.size()) {
+                    ordered.add(stratum.get(i));
+                }
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Check whether another commit may be resolved within the sample size and time budget
+     */
+    public boolean hasBudget() {
+        if (sampledCommits >= sampleSize) {
+            return false;
+        }
+        return timeBudget == null || System.currentTimeMillis() - startTime < timeBudget.toMillis();
+    }
+
+    /**
+     * Record that a commit was resolved as part of the sample
+     */
+    public void recordSampled() {
+        sampledCommits++;
+    }
+
+    public int getPopulationCommits() {
+        return populationCommits;
+    }
+
+    public int getSampledCommits() {
+        return sampledCommits;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+}
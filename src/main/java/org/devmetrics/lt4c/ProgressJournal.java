@@ -0,0 +1,289 @@
+package org.devmetrics.lt4c;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only on-disk record of the progress of a release analysis, so that an interrupted
+ * run can be resumed without repeating the GitHub API calls it already paid for.
+ *
+ * Each line is one entry:
+ * <pre>
+ * H &lt;from&gt; &lt;to&gt;        header identifying the analyzed range
+ * V &lt;sha&gt; [&lt;p,p|-&gt;]   commit visited during commit collection, with its parents when known
+ * D                    commit collection finished
+ * P &lt;json&gt;             hydrated pull request
+ * C &lt;sha&gt; &lt;n,n|-&gt;     commit resolved to the given merged PR numbers
+ * </pre>
+ * Entries are buffered and written in batches. A pull request is always journaled before the
+ * commit that resolved to it, so a resumed run never sees a resolved commit without its PRs.
+ * The journal may be read and updated from several threads at once.
+ */
+public class ProgressJournal implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ProgressJournal.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int BATCH_SIZE = 64;
+
+    private final Path path;
+    // Visited commits in the order they were collected, mapped to their parents or null if unknown
+    private final Map<String, List<String>> visitedCommits = new LinkedHashMap<>();
+    private final Set<String> resolvedCommits = new HashSet<>();
+    private final Map<Integer, PullRequest> pullRequests = new LinkedHashMap<>();
+    private final List<String> pendingEntries = new ArrayList<>();
+    private boolean collectionComplete;
+    private BufferedWriter writer;
+
+    private ProgressJournal(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Open the journal for the given release range
+     * @param path Location of the journal file
+     * @param fromTag Starting release of the analysis
+     * @param toTag Target release of the analysis
+     * @param resume Whether to continue from an existing journal for the same range
+     */
+    public static ProgressJournal open(Path path, String fromTag, String toTag, boolean resume) throws IOException {
+        ProgressJournal journal = new ProgressJournal(path);
+        String header = "H " + fromTag + " " + toTag;
+
+        if (resume && Files.exists(path)) {
+            List<String> lines = readCompleteLines(path);
+            if (!lines.isEmpty() && lines.get(0).equals(header)) {
+                journal.load(lines);
+                logger.info("Resuming from journal {}: {} commits collected, {} commits resolved, {} PRs",
+                    path, journal.visitedCommits.size(), journal.resolvedCommits.size(), journal.pullRequests.size());
+                journal.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                return journal;
+            }
+            logger.warn("Journal {} belongs to a different release range, starting over", path);
+        } else if (resume) {
+            logger.info("No journal found at {}, starting a fresh analysis", path);
+        }
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        journal.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        journal.append(header);
+        journal.flush();
+        return journal;
+    }
+
+    /**
+     * Read the complete lines of the journal. If the previous run was killed mid-write, the cut-off
+     * last entry is discarded and removed from the file, so that appending starts on a fresh line.
+     */
+    private static List<String> readCompleteLines(Path path) throws IOException {
+        byte[] content = Files.readAllBytes(path);
+        int end = content.length;
+        while (end > 0 && content[end - 1] != '\n') {
+            end--;
+        }
+        if (end < content.length) {
+            logger.info("Discarding incomplete last entry of journal {}", path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+            }
+        }
+        return new String(content, 0, end, StandardCharsets.UTF_8).lines().collect(Collectors.toList());
+    }
+
+    private void load(List<String> lines) {
+        for (int i = 1; i < lines.size(); i++) {
+            String line = lines.get(i);
+            try {
+                if (line.startsWith("V ")) {
+                    String[] fields = line.substring(2).split(" ");
+                    visitedCommits.put(fields[0], fields.length > 1 ? parseShas(fields[1]) : null);
+                } else if (line.equals("D")) {
+                    collectionComplete = true;
+                } else if (line.startsWith("P ")) {
+                    PullRequest pr = fromJson(line.substring(2));
+                    pullRequests.put(pr.getNumber(), pr);
+                } else if (line.startsWith("C ")) {
+                    resolvedCommits.add(line.substring(2).split(" ", 2)[0]);
+                }
+            } catch (Exception e) {
+                logger.debug("Ignoring unreadable journal entry at line {}: {}", i + 1, e.getMessage());
+            }
+        }
+    }
+
+    public synchronized boolean isCollectionComplete() {
+        return collectionComplete;
+    }
+
+    public synchronized List<String> getVisitedCommits() {
+        return new ArrayList<>(visitedCommits.keySet());
+    }
+
+    public synchronized boolean isCommitVisited(String commitSha) {
+        return visitedCommits.containsKey(commitSha);
+    }
+
+    /**
+     * Get the parents of the visited commits whose parents were journaled
+     */
+    public synchronized Map<String, List<String>> getVisitedParents() {
+        Map<String, List<String>> parents = new HashMap<>();
+        for (Map.Entry<String, List<String>> commit : visitedCommits.entrySet()) {
+            if (commit.getValue() != null) {
+                parents.put(commit.getKey(), commit.getValue());
+            }
+        }
+        return parents;
+    }
+
+    public synchronized boolean isCommitResolved(String commitSha) {
+        return resolvedCommits.contains(commitSha);
+    }
+
+    public synchronized int getResolvedCommitCount() {
+        return resolvedCommits.size();
+    }
+
+    public synchronized Collection<PullRequest> getPullRequests() {
+        return new ArrayList<>(pullRequests.values());
+    }
+
+    /**
+     * Record a commit visited while collecting the commits of the release, so that a resumed run
+     * does not need to fetch it again
+     * @param parents SHAs of the commit's parents
+     */
+    public synchronized void recordVisitedCommit(String commitSha, List<String> parents) throws IOException {
+        visitedCommits.put(commitSha, parents);
+        append("V " + commitSha + " " + (parents.isEmpty() ? "-" : String.join(",", parents)));
+    }
+
+    /**
+     * Record the full list of commits collected for the release and mark collection as finished.
+     * Commits already recorded as visited are not recorded again.
+     */
+    public synchronized void recordCollectedCommits(List<String> commits) throws IOException {
+        for (String sha : commits) {
+            if (!visitedCommits.containsKey(sha)) {
+                visitedCommits.put(sha, null);
+                append("V " + sha);
+            }
+        }
+        collectionComplete = true;
+        append("D");
+        flush();
+    }
+
+    public synchronized void recordPullRequest(PullRequest pr) throws IOException {
+        pullRequests.put(pr.getNumber(), pr);
+        append("P " + toJson(pr));
+    }
+
+    public synchronized void recordCommitResolved(String commitSha, List<Integer> prNumbers) throws IOException {
+        resolvedCommits.add(commitSha);
+        StringBuilder numbers = new StringBuilder();
+        for (Integer number : prNumbers) {
+            if (numbers.length() > 0) numbers.append(',');
+            numbers.append(number);
+        }
+        append("C " + commitSha + " " + (numbers.length() == 0 ? "-" : numbers));
+    }
+
+    private void append(String entry) throws IOException {
+        pendingEntries.add(entry);
+        if (pendingEntries.size() >= BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Write all buffered entries to disk
+     */
+    public synchronized void flush() throws IOException {
+        if (writer == null || pendingEntries.isEmpty()) {
+            return;
+        }
+        for (String entry : pendingEntries) {
+            writer.write(entry);
+            writer.newLine();
+        }
+        writer.flush();
+        pendingEntries.clear();
+    }
+
+    /**
+     * Close the journal and remove it from disk, used once the analysis has completed
+     */
+    public synchronized void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer == null) {
+            return;
+        }
+        flush();
+        writer.close();
+        writer = null;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    private static List<String> parseShas(String shas) {
+        return shas.equals("-") ? Collections.emptyList() : Arrays.asList(shas.split(","));
+    }
+
+    private static String toJson(PullRequest pr) throws IOException {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("number", pr.getNumber());
+        fields.put("title", pr.getTitle());
+        fields.put("author", pr.getAuthor());
+        fields.put("destinationBranch", pr.getDestinationBranch());
+        fields.put("mergeCommit", pr.getMergeCommit());
+        fields.put("createdAt", pr.getCreatedAt() == null ? null : pr.getCreatedAt().getTime());
+        fields.put("mergedAt", pr.getMergedAt() == null ? null : pr.getMergedAt().getTime());
+        fields.put("additions", pr.getAdditions());
+        fields.put("deletions", pr.getDeletions());
+        fields.put("body", pr.getBody());
+        return MAPPER.writeValueAsString(fields);
+    }
+
+    private static PullRequest fromJson(String json) throws IOException {
+        Map<String, Object> fields = MAPPER.readValue(json, new TypeReference<Map<String, Object>>() {});
+        return new PullRequest(
+            ((Number) fields.get("number")).intValue(),
+            (String) fields.get("title"),
+            (String) fields.get("author"),
+            (String) fields.get("destinationBranch"),
+            (String) fields.get("mergeCommit"),
+            toDate(fields.get("createdAt")),
+            toDate(fields.get("mergedAt")),
+            ((Number) fields.get("additions")).intValue(),
+            ((Number) fields.get("deletions")).intValue(),
+            (String) fields.get("body")
+        );
+    }
+
+    private static Date toDate(Object epochMillis) {
+        return epochMillis == null ? null : new Date(((Number) epochMillis).longValue());
+    }
+}
@@ -13,6 +13,7 @@ public class PullRequest {
     private final int additions;
     private final int deletions;
     private Date releaseDate;  // When this PR was included in a release
+    private String releaseTag; // The release this PR was included in
     private final String body; // Description of the PR
 
     public PullRequest(int number, String title, String author, String destinationBranch,
@@ -66,6 +67,10 @@ public class PullRequest {
         return deletions;
     }
 
+    public String getBody() {
+        return body;
+    }
+
     public int getTotalChanges() {
         return additions + deletions;
     }
@@ -78,6 +83,22 @@ public class PullRequest {
         return releaseDate;
     }
 
+    public void setRelease(String releaseTag, Date releaseDate) {
+        this.releaseTag = releaseTag;
+        this.releaseDate = releaseDate;
+    }
+
+    public String getReleaseTag() {
+        return releaseTag;
+    }
+
+    /**
+     * Whether the lead time is known, which needs both the merge date and the release date
+     */
+    public boolean hasLeadTime() {
+        return mergedAt != null && releaseDate != null;
+    }
+
     public double getLeadTimeHours() {
         if (mergedAt == null || releaseDate == null) {
             return 0.0;
@@ -107,6 +128,9 @@ public class PullRequest {
         sb.append(String.format("  Target Branch: %s%n", destinationBranch));
         sb.append(String.format("  Created: %s%n", createdAt));
         sb.append(String.format("  Merged: %s%n", mergedAt));
+        if (releaseTag != null) {
+            sb.append(String.format("  Released In: %s%n", releaseTag));
+        }
         
         if (body != null && !body.isEmpty()) {
             String firstLine = body.split("\\r?\\n")[0].trim();
@@ -114,7 +138,7 @@ public class PullRequest {
         }
         
         sb.append(String.format("  Changes: +%d -%d lines (total: %d)%n", additions, deletions, getTotalChanges()));
-        sb.append(String.format("  Lead Time: %.1f hours", getLeadTimeHours()));
+        sb.append(hasLeadTime() ? String.format("  Lead Time: %.1f hours", getLeadTimeHours()) : "  Lead Time: unknown");
         return sb.toString();
     }
 }
@@ -0,0 +1,241 @@
+package org.devmetrics.lt4c;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Groups pull requests by one or more dimensions and computes counts, line totals and lead time
+ * quantiles for every group. Large collections are split and aggregated in parallel on the
+ * fork/join pool, then the partial groups are merged.
+ */
+public class PullRequestAggregator {
+    private static final int SEQUENTIAL_THRESHOLD = 2048;
+    private static final String UNKNOWN_TEAM = "(no team)";
+    // Lead time bucket of pull requests whose release date could not be resolved
+    public static final String UNKNOWN_LEAD_TIME = "Unknown";
+
+    /**
+     * The dimensions pull requests can be grouped by
+     */
+    public enum Dimension {
+        AUTHOR, TEAM, BRANCH, SIZE, LEAD_TIME;
+
+        public static Dimension parse(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    private final List<Dimension> dimensions;
+    private final Map<String, String> authorTeams;
+
+    /**
+     * @param dimensions Dimensions to group by, in the order they appear in the group key
+     * @param authorTeams Mapping from author login to team, used by the TEAM dimension
+     */
+    public PullRequestAggregator(List<Dimension> dimensions, Map<String, String> authorTeams) {
+        this.dimensions = List.copyOf(dimensions);
+        this.authorTeams = authorTeams == null ? Collections.emptyMap() : authorTeams;
+    }
+
+    /**
+     * Aggregate the pull requests into groups
+     * @return Statistics for every group, keyed by the group's dimension values and sorted by key
+     */
+    public Map<List<String>, GroupStats> aggregate(List<PullRequest> pullRequests) {
+        Map<List<String>, GroupStats> groups = ForkJoinPool.commonPool()
+            .invoke(new AggregateTask(pullRequests, 0, pullRequests.size()));
+        Map<List<String>, GroupStats> sorted = new TreeMap<>(PullRequestAggregator::compareKeys);
+        sorted.putAll(groups);
+        return sorted;
+    }
+
+    public List<Dimension> getDimensions() {
+        return dimensions;
+    }
+
+    private List<String> keyOf(PullRequest pr) {
+        List<String> key = new ArrayList<>(dimensions.size());
+        for (Dimension dimension : dimensions) {
+            switch (dimension) {
+                case AUTHOR:
+                    key.add(pr.getAuthor());
+                    break;
+                case TEAM:
+                    key.add(authorTeams.getOrDefault(pr.getAuthor(), UNKNOWN_TEAM));
+                    break;
+                case BRANCH:
+                    key.add(pr.getDestinationBranch());
+                    break;
+                case SIZE:
+                    key.add(sizeBucket(pr.getTotalChanges()));
+                    break;
+                case LEAD_TIME:
+                    key.add(pr.hasLeadTime() ? leadTimeBucket(pr.getLeadTimeHours()) : UNKNOWN_LEAD_TIME);
+                    break;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Get the size bucket for a number of changed lines
+     */
+    public static String sizeBucket(int linesChanged) {
+        if (linesChanged < 10) return "XS";
+        if (linesChanged < 100) return "S";
+        if (linesChanged < 500) return "M";
+        if (linesChanged < 1000) return "L";
+        return "XL";
+    }
+
+    /**
+     * Get the lead time bucket for a lead time in hours
+     */
+    public static String leadTimeBucket(double leadTimeHours) {
+        if (leadTimeHours < 24) return "Fast";
+        if (leadTimeHours < 72) return "Medium";
+        return "Slow";
+    }
+
+    private static int compareKeys(List<String> a, List<String> b) {
+        for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+            int result = String.valueOf(a.get(i)).compareTo(String.valueOf(b.get(i)));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(a.size(), b.size());
+    }
+
+    private class AggregateTask extends RecursiveTask<Map<List<String>, GroupStats>> {
+        private final List<PullRequest> pullRequests;
+        private final int start;
+        private final int end;
+
+        AggregateTask(List<PullRequest> pullRequests, int start, int end) {
+            this.pullRequests = pullRequests;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Map<List<String>, GroupStats> compute() {
+            if (end - start <= SEQUENTIAL_THRESHOLD) {
+                Map<List<String>, GroupStats> groups = new HashMap<>();
+                for (int i = start; i < end; i++) {
+                    PullRequest pr = pullRequests.get(i);
+                    groups.computeIfAbsent(keyOf(pr), key -> new GroupStats()).add(pr);
+                }
+                return groups;
+            }
+
+            int middle = (start + end) >>> 1;
+            AggregateTask left = new AggregateTask(pullRequests, start, middle);
+            left.fork();
+            Map<List<String>, GroupStats> groups = new AggregateTask(pullRequests, middle, end).compute();
+            for (Map.Entry<List<String>, GroupStats> entry : left.join().entrySet()) {
+                groups.merge(entry.getKey(), entry.getValue(), GroupStats::merge);
+            }
+            return groups;
+        }
+    }
+
+    /**
+     * Statistics for one group of pull requests. Lead time statistics cover only the pull requests
+     * whose lead time is known.
+     */
+    public static class GroupStats {
+        private int count;
+        private long linesAdded;
+        private long linesDeleted;
+        private int leadTimeCount;
+        private double[] leadTimes = new double[16];
+        private boolean sorted;
+
+        private void add(PullRequest pr) {
+            count++;
+            linesAdded += pr.getAdditions();
+            linesDeleted += pr.getDeletions();
+            if (!pr.hasLeadTime()) {
+                return;
+            }
+            if (leadTimeCount == leadTimes.length) {
+                leadTimes = Arrays.copyOf(leadTimes, leadTimeCount * 2);
+            }
+            leadTimes[leadTimeCount++] = pr.getLeadTimeHours();
+            sorted = false;
+        }
+
+        private GroupStats merge(GroupStats other) {
+            if (leadTimeCount + other.leadTimeCount > leadTimes.length) {
+                leadTimes = Arrays.copyOf(leadTimes, leadTimeCount + other.leadTimeCount);
+            }
+            System.arraycopy(other.leadTimes, 0, leadTimes, leadTimeCount, other.leadTimeCount);
+            leadTimeCount += other.leadTimeCount;
+            count += other.count;
+            linesAdded += other.linesAdded;
+            linesDeleted += other.linesDeleted;
+            sorted = false;
+            return this;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Get the number of pull requests in the group whose lead time is known
+         */
+        public int getLeadTimeCount() {
+            return leadTimeCount;
+        }
+
+        public long getLinesAdded() {
+            return linesAdded;
+        }
+
+        public long getLinesDeleted() {
+            return linesDeleted;
+        }
+
+        public long getLinesChanged() {
+            return linesAdded + linesDeleted;
+        }
+
+        public double getAverageLeadTimeHours() {
+            if (leadTimeCount == 0) return 0.0;
+            double total = 0;
+            for (int i = 0; i < leadTimeCount; i++) {
+                total += leadTimes[i];
+            }
+            return total / leadTimeCount;
+        }
+
+        public double getMedianLeadTimeHours() {
+            if (leadTimeCount == 0) return 0.0;
+            sortLeadTimes();
+            if (leadTimeCount % 2 == 0) {
+                return (leadTimes[leadTimeCount / 2 - 1] + leadTimes[leadTimeCount / 2]) / 2.0;
+            }
+            return leadTimes[leadTimeCount / 2];
+        }
+
+        /**
+         * Get a lead time percentile using the nearest-rank method
+         */
+        public double getLeadTimePercentile(int percentile) {
+            if (leadTimeCount == 0) return 0.0;
+            sortLeadTimes();
+            int index = (int) Math.ceil(percentile / 100.0 * leadTimeCount) - 1;
+            return leadTimes[Math.max(0, Math.min(leadTimeCount - 1, index))];
+        }
+
+        private void sortLeadTimes() {
+            if (!sorted) {
+                Arrays.sort(leadTimes, 0, leadTimeCount);
+                sorted = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.devmetrics.lt4c;
+
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Connector that records every GitHub API exchange to a {@link GitHubCassette}, so that a real run
+ * can later be replayed offline with {@link ReplayGitHubConnector}.
+ *
+ * Response bodies are read in full and stored decoded, together with the time from sending the
+ * request to receiving the whole body.
+ */
+public class RecordingGitHubConnector implements GitHubConnector {
+    // The body is stored decoded, so headers describing the encoded body no longer apply
+    private static final Set<String> DROPPED_HEADERS = Set.of("content-encoding", "content-length", "transfer-encoding");
+
+    private final GitHubConnector delegate;
+    private final GitHubCassette cassette;
+
+    public RecordingGitHubConnector(GitHubConnector delegate, GitHubCassette cassette) {
+        this.delegate = delegate;
+        this.cassette = cassette;
+    }
+
+    @Override
+    public GitHubConnectorResponse send(GitHubConnectorRequest request) throws IOException {
+        long start = System.nanoTime();
+        byte[] body;
+        int status;
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        try (GitHubConnectorResponse response = delegate.send(request)) {
+            status = response.statusCode();
+            for (Map.Entry<String, List<String>> header : response.allHeaders().entrySet()) {
+                if (header.getKey() != null && !DROPPED_HEADERS.contains(header.getKey().toLowerCase())) {
+                    headers.put(header.getKey(), header.getValue());
+                }
+            }
+            InputStream in = response.bodyStream();
+            body = in == null ? new byte[0] : in.readAllBytes();
+        }
+        long latencyMs = (System.nanoTime() - start) / 1_000_000;
+
+        cassette.write(new GitHubCassette.Exchange(request.method(), request.url().toString(), status, latencyMs, headers, body));
+        return new RecordedResponse(request, status, headers, body);
+    }
+
+    /**
+     * Response served from a recorded body, used both while recording and when replaying
+     */
+    static class RecordedResponse extends GitHubConnectorResponse.ByteArrayResponse {
+        private final byte[] body;
+
+        RecordedResponse(GitHubConnectorRequest request, int status, Map<String, List<String>> headers, byte[] body) {
+            super(request, status, headers);
+            this.body = body;
+        }
+
+        @Override
+        protected InputStream rawBodyStream() {
+            return new ByteArrayInputStream(body);
+        }
+    }
+}
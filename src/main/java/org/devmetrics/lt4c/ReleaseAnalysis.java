@@ -3,6 +3,7 @@ package org.devmetrics.lt4c;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data structure containing the results of analyzing a release
@@ -18,11 +19,20 @@ public class ReleaseAnalysis {
     private final double averageLeadTimeHours;
     private final double medianLeadTimeHours;
     private final double p90LeadTimeHours;
-
+    private final SampleSummary sampleSummary;
+    private final boolean partial;
+    private final StageTimings stageTimings;
+
+    /**
+     * @param sampleSummary Sample the metrics were estimated from, or null if every commit was analyzed
+     * @param partial Whether the analysis stopped early on the API call budget
+     * @param stageTimings How long each stage of the analysis took, or null if it was not timed
+     */
     public ReleaseAnalysis(String releaseTag, String releaseCommit, Date releaseDate, 
                           String fromReleaseTag, Date fromReleaseDate,
                           List<PullRequest> pullRequests, double averageLeadTimeHours, 
-                          double medianLeadTimeHours, double p90LeadTimeHours) {
+                          double medianLeadTimeHours, double p90LeadTimeHours,
+                          SampleSummary sampleSummary, boolean partial, StageTimings stageTimings) {
         this.releaseTag = releaseTag;
         this.releaseCommit = releaseCommit;
         this.releaseDate = releaseDate;
@@ -32,6 +42,9 @@ public class ReleaseAnalysis {
         this.averageLeadTimeHours = averageLeadTimeHours;
         this.medianLeadTimeHours = medianLeadTimeHours;
         this.p90LeadTimeHours = p90LeadTimeHours;
+        this.sampleSummary = sampleSummary;
+        this.partial = partial;
+        this.stageTimings = stageTimings;
     }
 
     public String getReleaseTag() {
@@ -70,6 +83,34 @@ public class ReleaseAnalysis {
         return p90LeadTimeHours;
     }
 
+    /**
+     * Whether the lead time metrics are estimates from a sample of the release's commits
+     */
+    public boolean isSampled() {
+        return sampleSummary != null;
+    }
+
+    /**
+     * Get the sample the metrics were estimated from, or null if every commit was analyzed
+     */
+    public SampleSummary getSampleSummary() {
+        return sampleSummary;
+    }
+
+    /**
+     * Whether the analysis stopped early on the API call budget and covers only part of the release
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * Get how long each stage of the analysis took, or null if it was not timed
+     */
+    public StageTimings getStageTimings() {
+        return stageTimings;
+    }
+
     public int getTotalPullRequests() {
         return pullRequests.size();
     }
@@ -99,6 +140,13 @@ public class ReleaseAnalysis {
         return getTotalLinesChanged() / (double) pullRequests.size();
     }
 
+    /**
+     * Group the pull requests of this release and compute statistics for every group
+     */
+    public Map<List<String>, PullRequestAggregator.GroupStats> groupBy(PullRequestAggregator aggregator) {
+        return aggregator.aggregate(pullRequests);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -108,6 +156,13 @@ public class ReleaseAnalysis {
         sb.append(String.format("Average Lead Time: %.2f hours%n", averageLeadTimeHours));
         sb.append(String.format("Median Lead Time: %.2f hours%n", medianLeadTimeHours));
         sb.append(String.format("90th Percentile Lead Time: %.2f hours%n", p90LeadTimeHours));
+        if (sampleSummary != null) {
+            sb.append(String.format("Sampled: %d of %d commits, %d PRs%n",
+                sampleSummary.getSampledCommits(), sampleSummary.getPopulationCommits(), sampleSummary.getSampledPullRequests()));
+        }
+        if (partial) {
+            sb.append(String.format("Partial: stopped on the API call budget%n"));
+        }
         sb.append(String.format("Total Lines Changed: %d (+%d -%d)%n", 
             getTotalLinesChanged(), getTotalLinesAdded(), getTotalLinesDeleted()));
         sb.append(String.format("Average Lines per PR: %.2f%n", getAverageLinesChanged()));
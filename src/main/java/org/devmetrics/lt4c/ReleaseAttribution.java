@@ -0,0 +1,124 @@
+package org.devmetrics.lt4c;
+
+import org.kohsuke.github.GHRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Attributes every commit in the history to the earliest release that contains it, so each
+ * pull request can be measured against the release that actually shipped it rather than the
+ * release being analyzed.
+ */
+public class ReleaseAttribution {
+    private static final Logger logger = LoggerFactory.getLogger(ReleaseAttribution.class);
+    private static final int MAX_HISTORY_COMMITS = 200_000;
+
+    private final List<String> releaseTags = new ArrayList<>();
+    private final List<Date> releaseDates = new ArrayList<>();
+    private final Map<String, Integer> firstReleases;
+
+    /**
+     * Attribute commits to releases using a commit graph that already holds their history
+     * @param commitGraph The commit graph
+     * @param releaseTagCommits Map from release tag to the commit it points to
+     */
+    public ReleaseAttribution(CommitGraph commitGraph, Map<String, String> releaseTagCommits) {
+        long startTime = System.currentTimeMillis();
+
+        // Order releases by when they were cut, so backport releases on older lines are placed correctly
+        List<Map.Entry<String, String>> releases = new ArrayList<>();
+        for (Map.Entry<String, String> release : releaseTagCommits.entrySet()) {
+            if (commitGraph.getCommitTime(release.getValue()) == null) {
+                logger.warn("Release {} is not in the commit graph, skipping it", release.getKey());
+                continue;
+            }
+            releases.add(release);
+        }
+        releases.sort(Comparator.comparing(release -> commitGraph.getCommitTime(release.getValue())));
+
+        List<String> releaseShas = new ArrayList<>();
+        for (Map.Entry<String, String> release : releases) {
+            releaseTags.add(release.getKey());
+            releaseDates.add(commitGraph.getCommitTime(release.getValue()));
+            releaseShas.add(release.getValue());
+        }
+
+        firstReleases = commitGraph.firstContainingReleases(releaseShas);
+        logger.info("Attributed {} commits to {} releases in {}ms",
+            firstReleases.size(), releaseTags.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Build the attribution for every release tag of a repository, first extending the commit graph
+     * with the history of each release from the local clone or the GitHub API
+     * @param repository The repository to read release tags from
+     * @param commitGraph The commit graph to extend and query
+     * @param localClone Local clone to read history from, or null to use the GitHub API
+     */
+    public static ReleaseAttribution forRepository(GHRepository repository, CommitGraph commitGraph,
+                                                   Path localClone) throws IOException {
+        Map<String, String> releaseTagCommits;
+        boolean extendedFromClone = false;
+        try {
+            releaseTagCommits = new ReleaseLocator(repository).listReleaseTagCommits(commitGraph);
+            logger.info("Found {} release tags to attribute commits to", releaseTagCommits.size());
+
+            if (localClone != null) {
+                try {
+                    commitGraph.extendFromLocalClone(localClone, releaseTagCommits.values().toArray(new String[0]));
+                    extendedFromClone = true;
+                } catch (IOException e) {
+                    logger.warn("Could not read history from local clone {}: {}", localClone, e.getMessage());
+                }
+            }
+            if (!extendedFromClone) {
+                commitGraph.extendHistoryFromApi(repository, releaseTagCommits.values(), MAX_HISTORY_COMMITS);
+            }
+        } finally {
+            // Keep the tags and history fetched so far if the extension is cut short
+            commitGraph.save();
+        }
+
+        return new ReleaseAttribution(commitGraph, releaseTagCommits);
+    }
+
+    /**
+     * Get the earliest release that contains a commit
+     * @return The release tag, or null if no known release contains the commit
+     */
+    public String getFirstRelease(String commitSha) {
+        Integer release = firstReleases.get(commitSha);
+        return release == null ? null : releaseTags.get(release);
+    }
+
+    /**
+     * Get the date of the earliest release that contains a commit
+     * @return The release date, or null if no known release contains the commit
+     */
+    public Date getFirstReleaseDate(String commitSha) {
+        Integer release = firstReleases.get(commitSha);
+        return release == null ? null : releaseDates.get(release);
+    }
+
+    /**
+     * Set the release of each pull request to the first release containing its merge commit
+     * @return The number of pull requests that were attributed
+     */
+    public int applyTo(List<PullRequest> pullRequests) {
+        int attributed = 0;
+        for (PullRequest pr : pullRequests) {
+            Integer release = pr.getMergeCommit() == null ? null : firstReleases.get(pr.getMergeCommit());
+            if (release == null) {
+                logger.debug("PR #{} merge commit is not in any known release", pr.getNumber());
+                continue;
+            }
+            pr.setRelease(releaseTags.get(release), releaseDates.get(release));
+            attributed++;
+        }
+        return attributed;
+    }
+}
@@ -43,19 +43,7 @@ public class ReleaseLocator {
         }
         
         // Sort tags in reverse order (newest to oldest)
-        Collections.sort(allTags, (a, b) -> {
-            String[] partsA = a.replaceAll("^v", "").split("\\.");
-            String[] partsB = b.replaceAll("^v", "").split("\\.");
-            for (int i = 0; i < Math.min(partsA.length, partsB.length); i++) {
-                int compareResult = Integer.compare(
-                    Integer.parseInt(partsA[i]), 
-                    Integer.parseInt(partsB[i]));
-                if (compareResult != 0) {
-                    return -compareResult; // Reverse order
-                }
-            }
-            return -Integer.compare(partsA.length, partsB.length);
-        });
+        allTags.sort((a, b) -> -compareVersions(a, b));
         
         logger.debug("Found {} matching tags with major version {}", allTags.size(), majorVersion);
         
@@ -80,4 +68,56 @@ public class ReleaseLocator {
         }
         return previousTag;
     }
+
+    /**
+     * List all release tags with the commits they point to, following annotated tags
+     * @param commitGraph Commit graph remembering the commit of each annotated tag already followed
+     * @return Map from tag name to commit SHA, in ascending version order
+     */
+    public Map<String, String> listReleaseTagCommits(CommitGraph commitGraph) throws IOException {
+        List<GHRef> releaseRefs = new ArrayList<>();
+        for (GHRef ref : repository.listRefs("tags")) {
+            String tagName = ref.getRef().substring("refs/tags/".length());
+            if (tagName.matches("v?\\d+\\.\\d+\\.\\d+")) {
+                releaseRefs.add(ref);
+            } else {
+                logger.debug("Skipping tag {} as it doesn't match version format", tagName);
+            }
+        }
+        releaseRefs.sort((a, b) -> compareVersions(
+            a.getRef().substring("refs/tags/".length()), b.getRef().substring("refs/tags/".length())));
+
+        Map<String, String> tagCommits = new LinkedHashMap<>();
+        for (GHRef ref : releaseRefs) {
+            String sha = ref.getObject().getSha();
+            if (ref.getObject().getType().equals("tag")) {
+                String tagSha = sha;
+                sha = commitGraph.getTagCommit(tagSha);
+                if (sha == null) {
+                    sha = repository.getTagObject(tagSha).getObject().getSha();
+                    commitGraph.addTagCommit(tagSha, sha);
+                }
+            }
+            tagCommits.put(ref.getRef().substring("refs/tags/".length()), sha);
+        }
+        logger.debug("Found {} release tags", tagCommits.size());
+        return tagCommits;
+    }
+
+    /**
+     * Compare two version tags such as v1.2.3 numerically, oldest first
+     */
+    private static int compareVersions(String a, String b) {
+        String[] partsA = a.replaceAll("^v", "").split("\\.");
+        String[] partsB = b.replaceAll("^v", "").split("\\.");
+        for (int i = 0; i < Math.min(partsA.length, partsB.length); i++) {
+            int compareResult = Integer.compare(
+                Integer.parseInt(partsA[i]), 
+                Integer.parseInt(partsB[i]));
+            if (compareResult != 0) {
+                return compareResult;
+            }
+        }
+        return Integer.compare(partsA.length, partsB.length);
+    }
 }
@@ -0,0 +1,73 @@
+package org.devmetrics.lt4c;
+
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Connector that serves GitHub API responses from a {@link GitHubCassette} instead of the network.
+ *
+ * Responses are matched by method and URL. A request made several times during the recording is
+ * answered with its recorded responses in order, and the last one is repeated once they run out.
+ * Optionally each response is delayed by its recorded latency, to reproduce the timing of the
+ * original run rather than just its calls.
+ */
+public class ReplayGitHubConnector implements GitHubConnector {
+    private static final Logger logger = LoggerFactory.getLogger(ReplayGitHubConnector.class);
+
+    private final Map<String, Deque<GitHubCassette.Exchange>> exchanges = new HashMap<>();
+    private final boolean replayLatency;
+    private final int exchangeCount;
+
+    /**
+     * @param cassette Cassette recorded with {@link RecordingGitHubConnector}
+     * @param replayLatency Whether to delay each response by its recorded latency
+     */
+    public ReplayGitHubConnector(Path cassette, boolean replayLatency) throws IOException {
+        List<GitHubCassette.Exchange> recorded = GitHubCassette.read(cassette);
+        for (GitHubCassette.Exchange exchange : recorded) {
+            exchanges.computeIfAbsent(key(exchange.getMethod(), exchange.getUrl()), k -> new ArrayDeque<>()).add(exchange);
+        }
+        this.replayLatency = replayLatency;
+        this.exchangeCount = recorded.size();
+        logger.info("Replaying {} recorded GitHub API calls from {}", exchangeCount, cassette);
+    }
+
+    @Override
+    public GitHubConnectorResponse send(GitHubConnectorRequest request) throws IOException {
+        String key = key(request.method(), request.url().toString());
+        GitHubCassette.Exchange exchange;
+        synchronized (exchanges) {
+            Deque<GitHubCassette.Exchange> responses = exchanges.get(key);
+            if (responses == null) {
+                throw new IOException("No recorded response for " + key);
+            }
+            exchange = responses.size() > 1 ? responses.poll() : responses.peek();
+        }
+
+        if (replayLatency && exchange.getLatencyMs() > 0) {
+            try {
+                Thread.sleep(exchange.getLatencyMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while replaying " + key, e);
+            }
+        }
+        return new RecordingGitHubConnector.RecordedResponse(
+            request, exchange.getStatus(), exchange.getHeaders(), exchange.getBody());
+    }
+
+    public int getExchangeCount() {
+        return exchangeCount;
+    }
+
+    private static String key(String method, String url) {
+        return method + " " + url;
+    }
+}
@@ -0,0 +1,104 @@
+package org.devmetrics.lt4c;
+
+import java.util.Arrays;
+
+/**
+ * Describes the sample behind an approximate release analysis and the confidence intervals of
+ * its lead time estimates.
+ *
+ * Intervals for the median and 90th percentile are distribution-free: they are order statistics
+ * of the sampled lead times, chosen from the normal approximation of the binomial distribution.
+ */
+public class SampleSummary {
+    public static final double CONFIDENCE_LEVEL = 0.95;
+    private static final double Z = 1.959964;
+
+    private final int populationCommits;
+    private final int sampledCommits;
+    private final int sampledPullRequests;
+    private final double medianLowerHours;
+    private final double medianUpperHours;
+    private final double p90LowerHours;
+    private final double p90UpperHours;
+
+    public SampleSummary(int populationCommits, int sampledCommits, int sampledPullRequests,
+                         double medianLowerHours, double medianUpperHours,
+                         double p90LowerHours, double p90UpperHours) {
+        this.populationCommits = populationCommits;
+        this.sampledCommits = sampledCommits;
+        this.sampledPullRequests = sampledPullRequests;
+        this.medianLowerHours = medianLowerHours;
+        this.medianUpperHours = medianUpperHours;
+        this.p90LowerHours = p90LowerHours;
+        this.p90UpperHours = p90UpperHours;
+    }
+
+    /**
+     * Summarize a sample
+     * @param sampler The sampler that chose the commits
+     * @param leadTimes Lead times of the sampled pull requests
+     */
+    public static SampleSummary of(LeadTimeSampler sampler, double[] leadTimes) {
+        double[] sortedLeadTimes = leadTimes.clone();
+        Arrays.sort(sortedLeadTimes);
+        double[] median = quantileInterval(sortedLeadTimes, 0.5);
+        double[] p90 = quantileInterval(sortedLeadTimes, 0.9);
+        return new SampleSummary(sampler.getPopulationCommits(), sampler.getSampledCommits(), sortedLeadTimes.length,
+            median[0], median[1], p90[0], p90[1]);
+    }
+
+    private static double[] quantileInterval(double[] sorted, double quantile) {
+        int n = sorted.length;
+        if (n == 0) {
+            return new double[] {0.0, 0.0};
+        }
+        double spread = Z * Math.sqrt(n * quantile * (1 - quantile));
+        int lower = (int) Math.floor(n * quantile - spread);
+        int upper = (int) Math.ceil(n * quantile + spread);
+        return new double[] {
+            sorted[Math.max(0, Math.min(n - 1, lower))],
+            sorted[Math.max(0, Math.min(n - 1, upper))]
+        };
+    }
+
+    public int getPopulationCommits() {
+        return populationCommits;
+    }
+
+    public int getSampledCommits() {
+        return sampledCommits;
+    }
+
+    public int getSampledPullRequests() {
+        return sampledPullRequests;
+    }
+
+    /**
+     * Estimate the number of pull requests in the whole release from the sampled fraction of commits
+     */
+    public int getEstimatedTotalPullRequests() {
+        if (sampledCommits == 0) return 0;
+        return (int) Math.round(sampledPullRequests * (double) populationCommits / sampledCommits);
+    }
+
+    public double getSampledFraction() {
+        if (populationCommits == 0) return 0.0;
+        return sampledCommits / (double) populationCommits;
+    }
+
+    public double getMedianLowerHours() {
+        return medianLowerHours;
+    }
+
+    public double getMedianUpperHours() {
+        return medianUpperHours;
+    }
+
+    public double getP90LowerHours() {
+        return p90LowerHours;
+    }
+
+    public double getP90UpperHours() {
+        return p90UpperHours;
+    }
+}
@@ -0,0 +1,87 @@
+package org.devmetrics.lt4c;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * When each stage of a release analysis started and how long it took. Stages run concurrently
+ * where they can, so the stage durations can add up to more than the total time of the analysis.
+ */
+public class StageTimings {
+    private final long startNanos = System.nanoTime();
+    private final Map<String, long[]> stages = new LinkedHashMap<>();
+    private volatile long endNanos;
+
+    /**
+     * A running stage, also recorded as a Flight Recorder event
+     */
+    public class Stage {
+        private final String name;
+        private final TraceEvents.AnalysisStage event;
+
+        private Stage(String name, TraceEvents.AnalysisStage event) {
+            this.name = name;
+            this.event = event;
+        }
+
+        public void finish() {
+            event.finish();
+            synchronized (stages) {
+                stages.get(name)[1] = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Start timing a stage of the analysis
+     * @param stage Name of the stage
+     * @param release Release being analyzed
+     */
+    public Stage begin(String stage, String release) {
+        synchronized (stages) {
+            stages.put(stage, new long[] {System.nanoTime(), 0});
+        }
+        return new Stage(stage, TraceEvents.AnalysisStage.begin(stage, release));
+    }
+
+    /**
+     * Mark the end of the whole analysis
+     */
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    /**
+     * Get the duration of each finished stage, in the order the stages started
+     */
+    public Map<String, Duration> getDurations() {
+        Map<String, Duration> durations = new LinkedHashMap<>();
+        synchronized (stages) {
+            for (Map.Entry<String, long[]> stage : stages.entrySet()) {
+                if (stage.getValue()[1] != 0) {
+                    durations.put(stage.getKey(), Duration.ofNanos(stage.getValue()[1] - stage.getValue()[0]));
+                }
+            }
+        }
+        return durations;
+    }
+
+    /**
+     * Get how long after the start of the analysis a stage started
+     */
+    public Duration getStartOffset(String stage) {
+        synchronized (stages) {
+            long[] times = stages.get(stage);
+            return times == null ? null : Duration.ofNanos(times[0] - startNanos);
+        }
+    }
+
+    /**
+     * Get the total time of the analysis, or the time so far if it has not finished
+     */
+    public Duration getTotal() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return Duration.ofNanos(end - startNanos);
+    }
+}
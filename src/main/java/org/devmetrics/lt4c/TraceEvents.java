@@ -0,0 +1,115 @@
+package org.devmetrics.lt4c;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.List;
+
+/**
+ * JDK Flight Recorder events emitted during an analysis. Record them with --jfr or
+ * -XX:StartFlightRecording and open the recording in JDK Mission Control or with the jfr tool.
+ * When no recording is running, the events are not committed and cost almost nothing.
+ */
+public final class TraceEvents {
+    private static final String CATEGORY = "LT4C";
+
+    private TraceEvents() {
+    }
+
+    @Name("org.devmetrics.lt4c.CommitVisit")
+    @Label("Commit Visit")
+    @Description("A commit visited while collecting the commits of a release")
+    @Category({CATEGORY, "Traversal"})
+    @StackTrace(false)
+    static class CommitVisit extends Event {
+        @Label("Commit")
+        String sha;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("Parents")
+        int parentCount;
+    }
+
+    @Name("org.devmetrics.lt4c.PullRequestResolution")
+    @Label("Pull Request Resolution")
+    @Description("Looking up the pull requests associated with a commit")
+    @Category({CATEGORY, "Traversal"})
+    @StackTrace(false)
+    static class PullRequestResolution extends Event {
+        @Label("Commit")
+        String sha;
+
+        @Label("Pull Requests Found")
+        int pullRequests;
+
+        @Label("Merged Pull Requests Added")
+        int mergedPullRequests;
+    }
+
+    @Name("org.devmetrics.lt4c.GitHubCall")
+    @Label("GitHub API Call")
+    @Description("An HTTP request to the GitHub API, from sending the request until the response is closed")
+    @Category({CATEGORY, "GitHub"})
+    @StackTrace(false)
+    static class GitHubCall extends Event {
+        @Label("Method")
+        String method;
+
+        @Label("Endpoint")
+        String endpoint;
+
+        @Label("Status")
+        int status;
+
+        @Label("Response Size")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("org.devmetrics.lt4c.AnalysisStage")
+    @Label("Analysis Stage")
+    @Description("A stage of a release analysis")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static class AnalysisStage extends Event {
+        @Label("Stage")
+        String stage;
+
+        @Label("Release")
+        String release;
+
+        /**
+         * Start timing a stage of the analysis
+         */
+        static AnalysisStage begin(String stage, String release) {
+            AnalysisStage event = new AnalysisStage();
+            event.stage = stage;
+            event.release = release;
+            event.begin();
+            return event;
+        }
+
+        /**
+         * Finish the stage and record it if a recording is running
+         */
+        void finish() {
+            if (shouldCommit()) {
+                commit();
+            }
+        }
+    }
+
+    /**
+     * Get all event types, used to enable them in a recording
+     */
+    static List<Class<? extends Event>> eventTypes() {
+        return List.of(CommitVisit.class, PullRequestResolution.class, GitHubCall.class, AnalysisStage.class);
+    }
+}
@@ -0,0 +1,102 @@
+package org.devmetrics.lt4c;
+
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Connector that records a {@link TraceEvents.GitHubCall} event for every GitHub API request.
+ * Requests pass straight through to the wrapped connector when no recording is running.
+ */
+public class TracingGitHubConnector implements GitHubConnector {
+    private final GitHubConnector delegate;
+
+    public TracingGitHubConnector(GitHubConnector delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public GitHubConnectorResponse send(GitHubConnectorRequest request) throws IOException {
+        TraceEvents.GitHubCall event = new TraceEvents.GitHubCall();
+        if (!event.isEnabled()) {
+            return delegate.send(request);
+        }
+
+        event.begin();
+        event.method = request.method();
+        event.endpoint = request.url().getPath();
+        GitHubConnectorResponse response;
+        try {
+            response = delegate.send(request);
+        } catch (IOException e) {
+            event.status = -1;
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+            throw e;
+        }
+        event.status = response.statusCode();
+        return new TracedResponse(response, event);
+    }
+
+    /**
+     * Response wrapper that counts the body bytes read and records the call when it is closed
+     */
+    private static class TracedResponse extends GitHubConnectorResponse {
+        private final GitHubConnectorResponse delegate;
+        private final TraceEvents.GitHubCall event;
+        private long bytesRead;
+        private boolean closed;
+
+        TracedResponse(GitHubConnectorResponse delegate, TraceEvents.GitHubCall event) {
+            super(delegate.request(), delegate.statusCode(), delegate.allHeaders());
+            this.delegate = delegate;
+            this.event = event;
+        }
+
+        @Override
+        public InputStream bodyStream() throws IOException {
+            InputStream body = delegate.bodyStream();
+            if (body == null) {
+                return null;
+            }
+            return new FilterInputStream(body) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) {
+                        bytesRead++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int count = super.read(buffer, offset, length);
+                    if (count > 0) {
+                        bytesRead += count;
+                    }
+                    return count;
+                }
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+            if (!closed) {
+                closed = true;
+                event.bytes = bytesRead;
+                event.end();
+                if (event.shouldCommit()) {
+                    event.commit();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.devmetrics.lt4c;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommitGraphTest {
+    @TempDir
+    Path tempDir;
+
+    // Scrambled so that the order commits are added in differs from their SHA order
+    private static String sha(int n) {
+        return String.format("%08x", n * 0x9e3779b1).repeat(5);
+    }
+
+    private static void add(CommitGraph graph, int commit, int... parents) {
+        List<String> parentShas = new ArrayList<>();
+        for (int parent : parents) {
+            parentShas.add(sha(parent));
+        }
+        graph.addCommit(sha(commit), parentShas, commit * 1000L);
+    }
+
+    /**
+     * 1 - 2 - 3 - 5 - 6
+     *      \     /
+     *       - 4 -
+     */
+    private CommitGraph mergeHistory(Path path) throws Exception {
+        CommitGraph graph = CommitGraph.load(path);
+        add(graph, 6, 5);
+        add(graph, 5, 3, 4);
+        add(graph, 4, 2);
+        add(graph, 3, 2);
+        add(graph, 2, 1);
+        add(graph, 1);
+        return graph;
+    }
+
+    @Test
+    void returnsCommitsReachableOnlyFromTheLaterRelease() throws Exception {
+        CommitGraph graph = mergeHistory(tempDir.resolve("graph"));
+
+        assertEquals(List.of(sha(6), sha(5), sha(4), sha(3)), sortedByNumber(graph.commitsBetween(sha(2), sha(6))));
+        assertEquals(List.of(sha(4)), graph.commitsBetween(sha(3), sha(4)));
+        assertEquals(List.of(), graph.commitsBetween(sha(6), sha(6)));
+        assertNull(graph.commitsBetween(sha(2), sha(7)));
+    }
+
+    @Test
+    void answersNothingWhileTheEarlierReleaseHasUnknownHistory() throws Exception {
+        // 1 - 2 - 3 and 4 - 5, where 5 is not in the graph yet and could descend from 2
+        CommitGraph graph = CommitGraph.load(tempDir.resolve("graph"));
+        add(graph, 3, 2);
+        add(graph, 2, 1);
+        add(graph, 1);
+        add(graph, 4, 5);
+
+        assertNull(graph.commitsBetween(sha(4), sha(3)));
+
+        add(graph, 5, 2);
+        assertEquals(List.of(sha(3)), graph.commitsBetween(sha(4), sha(3)));
+    }
+
+    @Test
+    void answersNothingWhenTheRangeReachesUnknownHistory() throws Exception {
+        CommitGraph graph = CommitGraph.load(tempDir.resolve("graph"));
+        add(graph, 3, 2, 9);
+        add(graph, 2, 1);
+        add(graph, 1);
+
+        assertNull(graph.commitsBetween(sha(1), sha(3)));
+    }
+
+    @Test
+    void labelsCommitsWithTheirFirstRelease() throws Exception {
+        CommitGraph graph = mergeHistory(tempDir.resolve("graph"));
+
+        Map<String, Integer> releases = graph.firstContainingReleases(List.of(sha(3), sha(6)));
+
+        assertEquals(Map.of(sha(1), 0, sha(2), 0, sha(3), 0, sha(4), 1, sha(5), 1, sha(6), 1), releases);
+    }
+
+    @Test
+    void roundTripsThroughItsFile() throws Exception {
+        Path path = tempDir.resolve("graph");
+        CommitGraph graph = CommitGraph.load(path);
+        add(graph, 6, 5);
+        add(graph, 5, 3, 4);
+        add(graph, 4, 2);
+        add(graph, 3, 2);
+        graph.addTagCommit(sha(50), sha(6));
+        graph.save();
+
+        CommitGraph loaded = CommitGraph.load(path);
+        assertEquals(5, loaded.size());
+        assertTrue(loaded.contains(sha(4)));
+        assertFalse(loaded.contains(sha(2)));
+        assertEquals(2, loaded.getParentCount(sha(5)));
+        assertEquals(new Date(4000L), loaded.getCommitTime(sha(4)));
+        assertNull(loaded.commitsBetween(sha(3), sha(6)));
+        assertEquals(sha(6), loaded.getTagCommit(sha(50)));
+        assertNull(loaded.getTagCommit(sha(6)));
+
+        // Fill in the boundary commit from the file and add new history below it
+        add(loaded, 2, 1);
+        add(loaded, 1);
+        assertEquals(List.of(sha(6), sha(5), sha(4)), sortedByNumber(loaded.commitsBetween(sha(3), sha(6))));
+        loaded.save();
+
+        CommitGraph reloaded = CommitGraph.load(path);
+        assertEquals(6, reloaded.size());
+        assertEquals(1, reloaded.getParentCount(sha(2)));
+        assertEquals(0, reloaded.getParentCount(sha(1)));
+        assertEquals(sha(6), reloaded.getTagCommit(sha(50)));
+        assertEquals(List.of(sha(6), sha(5), sha(4)), sortedByNumber(reloaded.commitsBetween(sha(3), sha(6))));
+        assertEquals(Map.of(sha(1), 0, sha(2), 0, sha(3), 0, sha(4), 1, sha(5), 1, sha(6), 1),
+            reloaded.firstContainingReleases(List.of(sha(3), sha(6))));
+    }
+
+    private static List<String> sortedByNumber(List<String> shas) {
+        List<String> sorted = new ArrayList<>(shas);
+        sorted.sort((a, b) -> Integer.compare(number(b), number(a)));
+        return sorted;
+    }
+
+    private static int number(String sha) {
+        for (int n = 0; n < 100; n++) {
+            if (sha(n).equals(sha)) {
+                return n;
+            }
+        }
+        throw new IllegalArgumentException(sha);
+    }
+}
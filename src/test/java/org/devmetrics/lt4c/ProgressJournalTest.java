@@ -0,0 +1,102 @@
+package org.devmetrics.lt4c;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProgressJournalTest {
+    @TempDir
+    Path tempDir;
+
+    private static PullRequest pullRequest(int number) {
+        return new PullRequest(number, "PR " + number, "author", "main", "merge" + number,
+            new Date(1_000_000L), new Date(2_000_000L), 10, 2, "body");
+    }
+
+    @Test
+    void resumesRecordedProgress() throws Exception {
+        Path path = tempDir.resolve("run.journal");
+        try (ProgressJournal journal = ProgressJournal.open(path, "v1", "v2", false)) {
+            journal.recordCollectedCommits(List.of("aaa", "bbb"));
+            journal.recordPullRequest(pullRequest(1));
+            journal.recordCommitResolved("aaa", List.of(1));
+        }
+
+        try (ProgressJournal journal = ProgressJournal.open(path, "v1", "v2", true)) {
+            assertTrue(journal.isCollectionComplete());
+            assertEquals(List.of("aaa", "bbb"), journal.getVisitedCommits());
+            assertTrue(journal.isCommitResolved("aaa"));
+            assertFalse(journal.isCommitResolved("bbb"));
+            assertEquals(1, journal.getPullRequests().size());
+            assertEquals("PR 1", journal.getPullRequests().iterator().next().getTitle());
+        }
+    }
+
+    @Test
+    void resumesAnInterruptedCollection() throws Exception {
+        Path path = tempDir.resolve("run.journal");
+        try (ProgressJournal journal = ProgressJournal.open(path, "v1", "v2", false)) {
+            journal.recordVisitedCommit("ccc", List.of("bbb", "xxx"));
+            journal.recordVisitedCommit("bbb", List.of("aaa"));
+            journal.recordVisitedCommit("aaa", List.of());
+        }
+
+        try (ProgressJournal journal = ProgressJournal.open(path, "v1", "v2", true)) {
+            assertFalse(journal.isCollectionComplete());
+            assertTrue(journal.isCommitVisited("bbb"));
+            assertEquals(Map.of("ccc", List.of("bbb", "xxx"), "bbb", List.of("aaa"), "aaa", List.of()),
+                journal.getVisitedParents());
+
+            journal.recordCollectedCommits(List.of("ccc", "bbb", "aaa", "xxx"));
+        }
+
+        try (ProgressJournal journal = ProgressJournal.open(path, "v1", "v2", true)) {
+            assertTrue(journal.isCollectionComplete());
+            assertEquals(List.of("ccc", "bbb", "aaa", "xxx"), journal.getVisitedCommits());
+            assertFalse(journal.getVisitedParents().containsKey("xxx"));
+        }
+    }
+
+    @Test
+    void startsOverForADifferentRange() throws Exception {
+        Path path = tempDir.resolve("run.journal");
+        try (ProgressJournal journal = ProgressJournal.open(path, "v1", "v2", false)) {
+            journal.recordCollectedCommits(List.of("aaa"));
+        }
+
+        try (ProgressJournal journal = ProgressJournal.open(path, "v1", "v3", true)) {
+            assertFalse(journal.isCollectionComplete());
+            assertTrue(journal.getVisitedCommits().isEmpty());
+        }
+    }
+
+    @Test
+    void discardsEntryCutOffByAKilledRun() throws Exception {
+        Path path = tempDir.resolve("run.journal");
+        try (ProgressJournal journal = ProgressJournal.open(path, "v1", "v2", false)) {
+            journal.recordCollectedCommits(List.of("aaa", "bbb"));
+        }
+        Files.write(path, "P {\"number\":1,\"tit".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (ProgressJournal journal = ProgressJournal.open(path, "v1", "v2", true)) {
+            assertTrue(journal.getPullRequests().isEmpty());
+            journal.recordPullRequest(pullRequest(7));
+            journal.recordCommitResolved("bbb", List.of(7));
+        }
+
+        try (ProgressJournal journal = ProgressJournal.open(path, "v1", "v2", true)) {
+            assertTrue(journal.isCommitResolved("bbb"));
+            assertEquals(1, journal.getPullRequests().size());
+            assertEquals(7, journal.getPullRequests().iterator().next().getNumber());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.devmetrics.lt4c;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.devmetrics.lt4c.PullRequestAggregator.Dimension.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PullRequestAggregatorTest {
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final Date RELEASE_DATE = new Date(1_000_000 * HOUR);
+
+    private static PullRequest pullRequest(int number, String author, int linesChanged, double leadTimeHours) {
+        Date mergedAt = new Date(RELEASE_DATE.getTime() - (long) (leadTimeHours * HOUR));
+        PullRequest pr = new PullRequest(number, "PR " + number, author, "main", "merge" + number,
+            new Date(mergedAt.getTime() - HOUR), mergedAt, linesChanged, 0, "body");
+        pr.setRelease("v2", RELEASE_DATE);
+        return pr;
+    }
+
+    @Test
+    void bucketsAtTheBoundaries() {
+        assertEquals("XS", PullRequestAggregator.sizeBucket(9));
+        assertEquals("S", PullRequestAggregator.sizeBucket(10));
+        assertEquals("S", PullRequestAggregator.sizeBucket(99));
+        assertEquals("M", PullRequestAggregator.sizeBucket(100));
+        assertEquals("M", PullRequestAggregator.sizeBucket(499));
+        assertEquals("L", PullRequestAggregator.sizeBucket(500));
+        assertEquals("L", PullRequestAggregator.sizeBucket(999));
+        assertEquals("XL", PullRequestAggregator.sizeBucket(1000));
+
+        assertEquals("Fast", PullRequestAggregator.leadTimeBucket(23.9));
+        assertEquals("Medium", PullRequestAggregator.leadTimeBucket(24));
+        assertEquals("Medium", PullRequestAggregator.leadTimeBucket(71.9));
+        assertEquals("Slow", PullRequestAggregator.leadTimeBucket(72));
+    }
+
+    @Test
+    void groupsByEveryDimensionInOrder() {
+        PullRequestAggregator aggregator = new PullRequestAggregator(List.of(TEAM, AUTHOR, SIZE),
+            Map.of("alice", "core"));
+        List<PullRequest> pullRequests = List.of(
+            pullRequest(1, "alice", 5, 10),
+            pullRequest(2, "alice", 50, 30),
+            pullRequest(3, "alice", 7, 50),
+            pullRequest(4, "bob", 2000, 100));
+
+        Map<List<String>, PullRequestAggregator.GroupStats> groups = aggregator.aggregate(pullRequests);
+
+        assertEquals(List.of(
+            List.of("(no team)", "bob", "XL"),
+            List.of("core", "alice", "S"),
+            List.of("core", "alice", "XS")), new ArrayList<>(groups.keySet()));
+        PullRequestAggregator.GroupStats small = groups.get(List.of("core", "alice", "XS"));
+        assertEquals(2, small.getCount());
+        assertEquals(12, small.getLinesChanged());
+        assertEquals(30.0, small.getMedianLeadTimeHours(), 1e-9);
+        assertEquals(50.0, small.getLeadTimePercentile(90), 1e-9);
+    }
+
+    @Test
+    void keepsPullRequestsWithoutAReleaseDateOutOfLeadTimes() {
+        PullRequest unreleased = pullRequest(3, "alice", 5, 0);
+        unreleased.setRelease("v2", null);
+        PullRequestAggregator aggregator = new PullRequestAggregator(List.of(LEAD_TIME), null);
+
+        Map<List<String>, PullRequestAggregator.GroupStats> groups = aggregator.aggregate(List.of(
+            pullRequest(1, "alice", 5, 10), pullRequest(2, "alice", 5, 30), unreleased));
+
+        assertEquals(Set.of(List.of("Fast"), List.of("Medium"), List.of(PullRequestAggregator.UNKNOWN_LEAD_TIME)),
+            groups.keySet());
+        assertEquals(1, groups.get(List.of(PullRequestAggregator.UNKNOWN_LEAD_TIME)).getCount());
+        assertEquals(0, groups.get(List.of(PullRequestAggregator.UNKNOWN_LEAD_TIME)).getLeadTimeCount());
+
+        PullRequestAggregator.GroupStats all = new PullRequestAggregator(List.of(), null).aggregate(List.of(
+            pullRequest(1, "alice", 5, 10), pullRequest(2, "alice", 5, 30), unreleased)).get(List.of());
+        assertEquals(3, all.getCount());
+        assertEquals(2, all.getLeadTimeCount());
+        assertEquals(20.0, all.getMedianLeadTimeHours(), 1e-9);
+        assertEquals(10.0, all.getLeadTimePercentile(10), 1e-9);
+    }
+
+    @Test
+    void splitAggregationMatchesASequentialPass() {
+        List<PullRequest> pullRequests = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            PullRequest pr = pullRequest(i, "dev" + (i % 7), (i * 31) % 1500, (i * 37) % 200 + (i % 4) * 0.25);
+            if (i % 97 == 0) {
+                pr.setRelease("v2", null);
+            }
+            pullRequests.add(pr);
+        }
+        PullRequestAggregator aggregator = new PullRequestAggregator(List.of(AUTHOR, SIZE), Map.of());
+
+        Map<List<String>, PullRequestAggregator.GroupStats> groups = aggregator.aggregate(pullRequests);
+
+        Map<List<String>, List<PullRequest>> expected = new HashMap<>();
+        for (PullRequest pr : pullRequests) {
+            List<String> key = List.of(pr.getAuthor(), PullRequestAggregator.sizeBucket(pr.getTotalChanges()));
+            expected.computeIfAbsent(key, k -> new ArrayList<>()).add(pr);
+        }
+        assertEquals(expected.keySet(), groups.keySet());
+        for (Map.Entry<List<String>, List<PullRequest>> group : expected.entrySet()) {
+            PullRequestAggregator.GroupStats stats = groups.get(group.getKey());
+            double[] leadTimes = group.getValue().stream()
+                .filter(PullRequest::hasLeadTime)
+                .mapToDouble(PullRequest::getLeadTimeHours)
+                .sorted()
+                .toArray();
+            assertEquals(group.getValue().size(), stats.getCount());
+            assertEquals(group.getValue().stream().mapToLong(PullRequest::getTotalChanges).sum(), stats.getLinesChanged());
+            assertEquals(leadTimes.length, stats.getLeadTimeCount());
+            assertEquals(Arrays.stream(leadTimes).average().orElse(0), stats.getAverageLeadTimeHours(), 1e-9);
+            assertEquals(median(leadTimes), stats.getMedianLeadTimeHours(), 1e-9);
+            assertEquals(leadTimes[(int) Math.ceil(0.9 * leadTimes.length) - 1], stats.getLeadTimePercentile(90), 1e-9);
+        }
+    }
+
+    private static double median(double[] sorted) {
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 0 ? (sorted[middle - 1] + sorted[middle]) / 2.0 : sorted[middle];
+    }
+}